@@ -0,0 +1,279 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents the compact position of a block.
+ * <p>
+ * The block is identified by the world's uuid and the block
+ * cords packed into a single long, so it does not keep
+ * the world loaded and is cheap to compare and hash.
+ * </p>
+ * <li>
+ * Can be converted to and from the location identifier
+ * used in the configuration files, for example {@code id(world,1,64,-3)}.
+ * </li>
+ */
+public final class BlockKey {
+
+    /**
+     * The names of the worlds that keys have been created in.
+     * Used to write identifiers when the world is not loaded.
+     */
+    private static final @NotNull Map<UUID, String> worldNameMap = new ConcurrentHashMap<>();
+
+    private final @NotNull UUID worldUuid;
+    private final long position;
+
+    /**
+     * Used to create a block key.
+     *
+     * @param worldUuid The world's uuid.
+     * @param position  The packed block cords.
+     */
+    private BlockKey(@NotNull UUID worldUuid, long position) {
+        this.worldUuid = worldUuid;
+        this.position = position;
+    }
+
+    /**
+     * Used to get the uuid of the world the block is in.
+     *
+     * @return The world's uuid.
+     */
+    public @NotNull UUID getWorldUuid() {
+        return this.worldUuid;
+    }
+
+    /**
+     * Used to get the name of the world the block is in.
+     *
+     * @return The world's name.
+     * Null if the world has never been loaded.
+     */
+    public @Nullable String getWorldName() {
+        World world = Bukkit.getWorld(this.worldUuid);
+        if (world != null) return world.getName();
+        return BlockKey.worldNameMap.get(this.worldUuid);
+    }
+
+    /**
+     * Used to get the instance of the world the block is in.
+     *
+     * @return The instance of the world.
+     * Null if the world is not loaded.
+     */
+    public @Nullable World getWorld() {
+        return Bukkit.getWorld(this.worldUuid);
+    }
+
+    /**
+     * Used to get the packed block cords.
+     *
+     * @return The packed block cords.
+     */
+    public long getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Used to get the block x cord.
+     *
+     * @return The block x cord.
+     */
+    public int getX() {
+        return (int) (this.position >> 38);
+    }
+
+    /**
+     * Used to get the block y cord.
+     *
+     * @return The block y cord.
+     */
+    public int getY() {
+        return (int) (this.position << 52 >> 52);
+    }
+
+    /**
+     * Used to get the block z cord.
+     *
+     * @return The block z cord.
+     */
+    public int getZ() {
+        return (int) (this.position << 26 >> 38);
+    }
+
+    /**
+     * Used to create a new location instance at this block.
+     * The world will be null if it is not loaded.
+     *
+     * @return The instance of the location.
+     */
+    public @NotNull Location toLocation() {
+        return new Location(this.getWorld(), this.getX(), this.getY(), this.getZ());
+    }
+
+    /**
+     * Used to get the location identifier of this block.
+     * This is the key used in the location configuration files.
+     *
+     * @return The location identifier.
+     */
+    public @NotNull String getIdentifier() {
+        return "id(" + this.getWorldName() + ","
+                + this.getX() + ","
+                + this.getY() + ","
+                + this.getZ() + ")";
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (!(object instanceof BlockKey key)) return false;
+        return this.position == key.position && this.worldUuid.equals(key.worldUuid);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.worldUuid.hashCode() + Long.hashCode(this.position);
+    }
+
+    @Override
+    public String toString() {
+        return this.getIdentifier();
+    }
+
+    /**
+     * Used to pack block cords into a single long.
+     * <li>x and z use 26 bits and y uses 12 bits.</li>
+     *
+     * @param x The block x cord.
+     * @param y The block y cord.
+     * @param z The block z cord.
+     * @return The packed block cords.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((x & 0x3FFFFFFL) << 38) | ((z & 0x3FFFFFFL) << 12) | (y & 0xFFFL);
+    }
+
+    /**
+     * Used to create a block key.
+     *
+     * @param world The instance of the world.
+     * @param x     The block x cord.
+     * @param y     The block y cord.
+     * @param z     The block z cord.
+     * @return The block key.
+     */
+    public static @NotNull BlockKey of(@NotNull World world, int x, int y, int z) {
+        BlockKey.worldNameMap.putIfAbsent(world.getUID(), world.getName());
+        return new BlockKey(world.getUID(), BlockKey.pack(x, y, z));
+    }
+
+    /**
+     * Used to create a block key from a block.
+     *
+     * @param block The instance of the block.
+     * @return The block key.
+     */
+    public static @NotNull BlockKey of(@NotNull Block block) {
+        return BlockKey.of(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Used to create a block key from a location.
+     *
+     * @param location The instance of the location.
+     * @return The block key.
+     * Null if the location does not have a world.
+     */
+    public static @Nullable BlockKey of(@NotNull Location location) {
+        if (location.getWorld() == null) return null;
+        return BlockKey.of(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Used to create a block key from a location identifier.
+     *
+     * @param identifier The location identifier, for example {@code id(world,1,64,-3)}.
+     * @return The block key.
+     * Null if the identifier is invalid or the world is not loaded.
+     */
+    public static @Nullable BlockKey parse(@NotNull String identifier) {
+        String[] parts = BlockKey.split(identifier);
+        if (parts == null) return null;
+
+        World world = Bukkit.getWorld(parts[0]);
+        if (world == null) return null;
+
+        return BlockKey.of(world,
+                Integer.parseInt(parts[1]),
+                Integer.parseInt(parts[2]),
+                Integer.parseInt(parts[3])
+        );
+    }
+
+    /**
+     * Used to split a location identifier into its world name
+     * and cords. The world does not need to be loaded.
+     *
+     * @param identifier The location identifier, for example {@code id(world,1,64,-3)}.
+     * @return The world name followed by the x, y and z cords.
+     * Null if the identifier is invalid.
+     */
+    public static @Nullable String[] split(@NotNull String identifier) {
+        if (!identifier.startsWith("id(") || !identifier.endsWith(")")) return null;
+        String content = identifier.substring(3, identifier.length() - 1);
+
+        // Split from the right in case the world name contains commas.
+        int zIndex = content.lastIndexOf(',');
+        if (zIndex < 0) return null;
+        int yIndex = content.lastIndexOf(',', zIndex - 1);
+        if (yIndex < 0) return null;
+        int xIndex = content.lastIndexOf(',', yIndex - 1);
+        if (xIndex < 0) return null;
+
+        String[] parts = {
+                content.substring(0, xIndex),
+                content.substring(xIndex + 1, yIndex),
+                content.substring(yIndex + 1, zIndex),
+                content.substring(zIndex + 1)
+        };
+
+        // Check if the cords are numbers.
+        try {
+            for (int index = 1; index < parts.length; index++) Integer.parseInt(parts[index]);
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+
+        return parts;
+    }
+}
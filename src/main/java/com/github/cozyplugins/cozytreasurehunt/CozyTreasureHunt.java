@@ -26,13 +26,19 @@ import com.github.cozyplugins.cozytreasurehunt.listener.EventListener;
 import com.github.cozyplugins.cozytreasurehunt.listener.TreasureListener;
 import com.github.cozyplugins.cozytreasurehunt.placeholder.FindPlaceholder;
 import com.github.cozyplugins.cozytreasurehunt.placeholder.LeaderboardPlaceholder;
+import com.github.cozyplugins.cozytreasurehunt.placeholder.RankPlaceholder;
+import com.github.cozyplugins.cozytreasurehunt.placeholder.TopPlaceholder;
 import com.github.cozyplugins.cozytreasurehunt.placeholder.TotalPlaceholder;
 import com.github.cozyplugins.cozytreasurehunt.result.TreasureSpawnResult;
 import com.github.cozyplugins.cozytreasurehunt.storage.ConfigFile;
 import com.github.cozyplugins.cozytreasurehunt.storage.DataStorage;
+import com.github.cozyplugins.cozytreasurehunt.storage.GroupCommit;
 import com.github.cozyplugins.cozytreasurehunt.storage.LocationStorage;
+import com.github.cozyplugins.cozytreasurehunt.storage.StorageExecutor;
+import com.github.cozyplugins.cozytreasurehunt.storage.StorageWatcher;
 import com.github.cozyplugins.cozytreasurehunt.storage.TreasureStorage;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
@@ -41,6 +47,8 @@ import java.util.*;
  */
 public final class CozyTreasureHunt extends CozyPlugin {
 
+    private @Nullable StorageWatcher storageWatcher;
+
     @Override
     public boolean enableCommandDirectory() {
         return true;
@@ -48,12 +56,34 @@ public final class CozyTreasureHunt extends CozyPlugin {
 
     @Override
     public void onCozyEnable() {
+        // Set up the config file.
+        ConfigFile.setup();
+
         // Initialise the directory's.
         TreasureStorage.load();
         LocationStorage.load();
-
-        // Set up the config file.
-        ConfigFile.setup();
+        DataStorage.load();
+
+        // Write location changes in the background.
+        long saveInterval = ConfigFile.getLocationSaveInterval() * 20L;
+        this.getServer().getScheduler().runTaskTimerAsynchronously(
+                this, LocationStorage::flush, saveInterval, saveInterval
+        );
+
+        // Write changed player data.
+        long dataSaveInterval = ConfigFile.getDataSaveInterval() * 20L;
+        this.getServer().getScheduler().runTaskTimer(
+                this, DataStorage::flush, dataSaveInterval, dataSaveInterval
+        );
+
+        // Watch for files changed outside the plugin.
+        if (ConfigFile.isWatchFilesEnabled()) {
+            this.storageWatcher = new StorageWatcher(this)
+                    .watch(TreasureStorage.getMedium().getDirectory(), TreasureStorage::reloadFile)
+                    .watch(LocationStorage.getMedium().getDirectory(), LocationStorage::reloadFile)
+                    .watch(DataStorage.getMedium().getDirectory(), DataStorage::reloadFile);
+            this.storageWatcher.start();
+        }
 
         // Add commands.
         this.addCommandType(new TreasureCommand());
@@ -66,11 +96,28 @@ public final class CozyTreasureHunt extends CozyPlugin {
         this.addPlaceholder(new TotalPlaceholder());
         this.addPlaceholder(new LeaderboardPlaceholder());
         this.addPlaceholder(new FindPlaceholder());
+        this.addPlaceholder(new RankPlaceholder());
+        this.addPlaceholder(new TopPlaceholder());
 
         // Metrics.
         new Metrics(this, 19286);
     }
 
+    @Override
+    public void onDisable() {
+        // Stop watching the storage files.
+        if (this.storageWatcher != null) this.storageWatcher.stop();
+
+        // Write the remaining player data and location changes.
+        DataStorage.flush();
+        LocationStorage.flush();
+        DataStorage.close();
+        StorageExecutor.shutdown();
+        GroupCommit.shutdown();
+
+        super.onDisable();
+    }
+
 
     /**
      * Used to spawn all the treasure registered
@@ -79,8 +126,8 @@ public final class CozyTreasureHunt extends CozyPlugin {
     public static @NotNull TreasureSpawnResult spawnTreasure() {
         TreasureSpawnResult result = new TreasureSpawnResult();
 
-        // Remove all treasure in data file.
-        DataStorage.removeAll();
+        // Start a new season, so players start with no treasure found.
+        DataStorage.startSeason();
 
         // The treasure with non-identical spawn ratios.
         HashMap<UUID, @NotNull List<TreasureLocation>> ratioTreasure = new HashMap<>();
@@ -1,47 +1,238 @@
 package com.github.cozyplugins.cozytreasurehunt;
 
-import com.github.cozyplugins.cozytreasurehunt.storage.PlayerData;
+import com.github.cozyplugins.cozytreasurehunt.storage.ConfigFile;
+import com.github.cozyplugins.cozytreasurehunt.storage.DataStorage;
+import com.github.cozyplugins.cozytreasurehunt.storage.PlayerRecord;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.FoundRing;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.RankTree;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
-import java.util.TreeMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents a treasure leaderboard.
+ * <p>
+ * The leaderboard is kept up to date as treasure is found,
+ * so getting the player at a rank does not read any player data.
+ * Players with the same amount are ordered by their uuid.
+ * </p>
+ * <p>
+ * The leaderboard of a treasure is created on the storage executor
+ * the first time it is used, and removed when it has not been
+ * used for the leaderboard expiry in the config file.
+ * </p>
+ * <p>
+ * The daily and weekly leaderboards rank the treasure found
+ * in the last {@link Period} of days. They are ranked again
+ * from the found rings in memory when the day changes.
+ * </p>
+ * <li>
+ * The methods can be called from any thread.
+ * </li>
  */
 public class Leaderboard {
 
-    private final @NotNull List<PlayerData> playerDataList;
+    /**
+     * Represents a player's position in a page of the leaderboard.
+     *
+     * @param rank       The player's rank, where 1 is first place.
+     * @param playerUuid The player's uuid.
+     * @param name       The player's name when they last found treasure.
+     * @param amount     The amount of treasure found.
+     */
+    public record Entry(int rank, @NotNull UUID playerUuid, @Nullable String name, int amount) {
+    }
+
+    /**
+     * Represents a period of days that can be ranked.
+     */
+    public enum Period {
+        DAILY(1),
+        WEEKLY(FoundRing.DAYS);
+
+        private final int days;
+
+        Period(int days) {
+            this.days = days;
+        }
+
+        /**
+         * Used to get the amount of days in the period.
+         *
+         * @return The amount of days, including today.
+         */
+        public int getDays() {
+            return this.days;
+        }
+    }
+
+    /**
+     * Represents the leaderboard of a treasure.
+     */
+    private static class TreasureRanking {
+
+        private final @NotNull RankTree tree;
+
+        /**
+         * The treasure found while the ranking is being created.
+         * Null once the ranking has been created.
+         */
+        private @Nullable Map<UUID, Integer> pendingMap;
+
+        /**
+         * The amounts of the players whose records were set
+         * while the ranking is being created. These replace
+         * the amounts that were counted.
+         */
+        private @NotNull Map<UUID, Integer> replacedMap;
+
+        /**
+         * Completes when the ranking has been created or removed.
+         */
+        private final @NotNull CompletableFuture<Void> createdFuture;
+        private long lastUsed;
+
+        private TreasureRanking() {
+            this.tree = new RankTree();
+            this.pendingMap = new HashMap<>();
+            this.replacedMap = new HashMap<>();
+            this.createdFuture = new CompletableFuture<>();
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        private boolean isCreated() {
+            return this.pendingMap == null;
+        }
+    }
+
+    private final @NotNull RankTree totalTree;
+    private final @NotNull Map<String, TreasureRanking> treasureRankingMap;
+    private final @NotNull Map<UUID, String> nameMap;
+
+    /**
+     * The treasure found on each of the last days by
+     * the players who have found treasure in them.
+     */
+    private final @NotNull Map<UUID, FoundRing> recentFoundMap;
+    private final @NotNull Map<Period, RankTree> periodTreeMap;
+    private long day;
+
+    /**
+     * Used to create an empty leaderboard.
+     */
+    public Leaderboard() {
+        this.totalTree = new RankTree();
+        this.treasureRankingMap = new HashMap<>();
+        this.nameMap = new HashMap<>();
+        this.recentFoundMap = new HashMap<>();
+        this.periodTreeMap = new EnumMap<>(Period.class);
+        this.day = FoundRing.today();
+
+        for (Period period : Period.values()) {
+            this.periodTreeMap.put(period, new RankTree());
+        }
+    }
 
     /**
-     * Used to create a leaderboard.
+     * Used to set a player's position from their record.
+     * This replaces the amounts the player had before.
      *
-     * @param playerData The list of player data to order.
+     * @param playerRecord The player's record.
      */
-    public Leaderboard(@NotNull List<PlayerData> playerData) {
-        this.playerDataList = playerData;
+    public synchronized void set(@NotNull PlayerRecord playerRecord) {
+        UUID playerUuid = playerRecord.getIdentifier();
+        this.setName(playerUuid, playerRecord.getName());
+        this.totalTree.set(playerUuid, playerRecord.getAmountFound());
+
+        for (Map.Entry<String, TreasureRanking> entry : this.treasureRankingMap.entrySet()) {
+            TreasureRanking ranking = entry.getValue();
+            int amount = playerRecord.getTreasureFound(entry.getKey());
+
+            // Rankings that are being created use the amount once they are created.
+            if (ranking.pendingMap != null) {
+                ranking.pendingMap.remove(playerUuid);
+                ranking.replacedMap.put(playerUuid, amount);
+                continue;
+            }
+
+            ranking.tree.set(playerUuid, amount);
+        }
+
+        this.updateDay();
+        FoundRing ring = playerRecord.getRecentFound().copy();
+        if (ring.isEmpty(this.day)) this.recentFoundMap.remove(playerUuid);
+        else this.recentFoundMap.put(playerUuid, ring);
+
+        for (Map.Entry<Period, RankTree> entry : this.periodTreeMap.entrySet()) {
+            entry.getValue().set(playerUuid, ring.getAmount(this.day, entry.getKey().getDays()));
+        }
     }
 
     /**
-     * Used to get who is at a certain rank in
-     * total treasure found.
-     * <li>1 is first place.</li>
+     * Used to increase the amount of a treasure a player has found by one.
      *
-     * @param rank The rank in the leaderboard.
-     * @return The requested player data.
+     * @param playerUuid   The player's uuid.
+     * @param treasureName The treasure's name.
      */
-    public @Nullable PlayerData get(int rank) {
-        TreeMap<Integer, PlayerData> map = new TreeMap<>();
+    public synchronized void increase(@NotNull UUID playerUuid, @NotNull String treasureName) {
+        this.totalTree.add(playerUuid, 1);
+        this.removeExpired();
 
-        for (PlayerData playerData : this.playerDataList) {
-            map.put(playerData.getAmountFound(), playerData);
+        this.updateDay();
+        this.recentFoundMap.computeIfAbsent(playerUuid, key -> new FoundRing()).add(this.day, 1);
+        for (RankTree tree : this.periodTreeMap.values()) tree.add(playerUuid, 1);
+
+        TreasureRanking ranking = this.treasureRankingMap.get(treasureName);
+        if (ranking == null) return;
+
+        if (ranking.pendingMap != null) {
+            if (ranking.replacedMap.containsKey(playerUuid)) ranking.replacedMap.merge(playerUuid, 1, Integer::sum);
+            else ranking.pendingMap.merge(playerUuid, 1, Integer::sum);
+            return;
         }
 
-        List<PlayerData> list = new ArrayList<>(map.descendingMap().values());
+        ranking.tree.add(playerUuid, 1);
+    }
+
+    /**
+     * Used to set the name shown for a player.
+     *
+     * @param playerUuid The player's uuid.
+     * @param name       The player's name.
+     */
+    public synchronized void setName(@NotNull UUID playerUuid, @Nullable String name) {
+        if (name == null) return;
+        this.nameMap.put(playerUuid, name);
+    }
+
+    /**
+     * Used to get the name of a player.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The player's name when they last found treasure.
+     */
+    public synchronized @Nullable String getName(@NotNull UUID playerUuid) {
+        return this.nameMap.get(playerUuid);
+    }
 
-        return list.size() >= rank ? list.get(rank - 1) : null;
+    /**
+     * Used to get who is at a certain rank in
+     * total treasure found.
+     * <li>1 is first place.</li>
+     *
+     * @param rank The rank in the leaderboard.
+     * @return The requested player's uuid.
+     */
+    public synchronized @Nullable UUID get(int rank) {
+        return this.totalTree.get(rank);
     }
 
     /**
@@ -51,17 +242,294 @@ public class Leaderboard {
      *
      * @param rank         The rank in the leaderboard.
      * @param treasureName The treasure's name.
-     * @return The requested player data.
+     * @return The requested player's uuid.
+     * Null if the treasure's leaderboard is still being created.
+     */
+    public synchronized @Nullable UUID get(int rank, @NotNull String treasureName) {
+        RankTree tree = this.getTree(treasureName);
+        if (tree == null) return null;
+        return tree.get(rank);
+    }
+
+    /**
+     * Used to get who is at a certain rank in
+     * treasure found in a period.
+     * <li>1 is first place.</li>
+     *
+     * @param rank   The rank in the leaderboard.
+     * @param period The period.
+     * @return The requested player's uuid.
+     */
+    public synchronized @Nullable UUID get(int rank, @NotNull Period period) {
+        this.updateDay();
+        return this.periodTreeMap.get(period).get(rank);
+    }
+
+    /**
+     * Used to get a page of the leaderboard in total treasure found.
+     *
+     * @param amount The maximum amount of entries.
+     * @param offset The amount of ranks to skip.
+     * @return The unmodifiable list of entries.
+     */
+    public synchronized @NotNull List<Entry> top(int amount, int offset) {
+        return this.top(this.totalTree, amount, offset);
+    }
+
+    /**
+     * Used to get a page of the leaderboard in a specific treasure found.
+     *
+     * @param amount       The maximum amount of entries.
+     * @param offset       The amount of ranks to skip.
+     * @param treasureName The treasure's name.
+     * @return The unmodifiable list of entries.
+     * Null if the treasure's leaderboard is still being created.
      */
-    public @Nullable PlayerData get(int rank, @NotNull String treasureName) {
-        TreeMap<Integer, PlayerData> map = new TreeMap<>();
+    public synchronized @Nullable List<Entry> top(int amount, int offset, @NotNull String treasureName) {
+        RankTree tree = this.getTree(treasureName);
+        if (tree == null) return null;
+        return this.top(tree, amount, offset);
+    }
 
-        for (PlayerData playerData : this.playerDataList) {
-            map.put(playerData.getTreasureFound(treasureName), playerData);
+    /**
+     * Used to get a page of the leaderboard in treasure found in a period.
+     *
+     * @param amount The maximum amount of entries.
+     * @param offset The amount of ranks to skip.
+     * @param period The period.
+     * @return The unmodifiable list of entries.
+     */
+    public synchronized @NotNull List<Entry> top(int amount, int offset, @NotNull Period period) {
+        this.updateDay();
+        return this.top(this.periodTreeMap.get(period), amount, offset);
+    }
+
+    /**
+     * Used to get a player's rank in total treasure found.
+     * <li>1 is first place.</li>
+     *
+     * @param playerUuid The player's uuid.
+     * @return The player's rank.
+     * 0 if the player has not found any treasure.
+     */
+    public synchronized int getRank(@NotNull UUID playerUuid) {
+        return this.totalTree.getRank(playerUuid);
+    }
+
+    /**
+     * Used to get a player's rank in a specific treasure found.
+     * <li>1 is first place.</li>
+     *
+     * @param playerUuid   The player's uuid.
+     * @param treasureName The treasure's name.
+     * @return The player's rank.
+     * 0 if the player has not found the treasure, or
+     * the treasure's leaderboard is still being created.
+     */
+    public synchronized int getRank(@NotNull UUID playerUuid, @NotNull String treasureName) {
+        RankTree tree = this.getTree(treasureName);
+        if (tree == null) return 0;
+        return tree.getRank(playerUuid);
+    }
+
+    /**
+     * Used to get a player's rank in treasure found in a period.
+     * <li>1 is first place.</li>
+     *
+     * @param playerUuid The player's uuid.
+     * @param period     The period.
+     * @return The player's rank.
+     * 0 if the player has not found any treasure in the period.
+     */
+    public synchronized int getRank(@NotNull UUID playerUuid, @NotNull Period period) {
+        this.updateDay();
+        return this.periodTreeMap.get(period).getRank(playerUuid);
+    }
+
+    /**
+     * Used to get the amount of treasure a player has found.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The amount of treasure found.
+     */
+    public synchronized int getAmountFound(@NotNull UUID playerUuid) {
+        return this.totalTree.getScore(playerUuid);
+    }
+
+    /**
+     * Used to get the amount of treasure a player has found in a period.
+     *
+     * @param playerUuid The player's uuid.
+     * @param period     The period.
+     * @return The amount of treasure found.
+     */
+    public synchronized int getAmountFound(@NotNull UUID playerUuid, @NotNull Period period) {
+        this.updateDay();
+        return this.periodTreeMap.get(period).getScore(playerUuid);
+    }
+
+    /**
+     * Used to get the amount of a specific treasure a player has found.
+     *
+     * @param playerUuid   The player's uuid.
+     * @param treasureName The treasure's name.
+     * @return The amount of the treasure found.
+     * 0 if the treasure's leaderboard is still being created.
+     */
+    public synchronized int getTreasureFound(@NotNull UUID playerUuid, @NotNull String treasureName) {
+        RankTree tree = this.getTree(treasureName);
+        if (tree == null) return 0;
+        return tree.getScore(playerUuid);
+    }
+
+    /**
+     * Used to remove every player from the leaderboard.
+     */
+    public synchronized void clear() {
+        this.totalTree.clear();
+        this.treasureRankingMap.clear();
+        this.nameMap.clear();
+        this.recentFoundMap.clear();
+        for (RankTree tree : this.periodTreeMap.values()) tree.clear();
+    }
+
+    /**
+     * Used to get a page of a ranking.
+     *
+     * @param tree   The ranking.
+     * @param amount The maximum amount of entries.
+     * @param offset The amount of ranks to skip.
+     * @return The unmodifiable list of entries.
+     */
+    private @NotNull List<Entry> top(@NotNull RankTree tree, int amount, int offset) {
+        List<Entry> entryList = new ArrayList<>();
+        int firstRank = Math.max(offset, 0) + 1;
+
+        tree.forEach(firstRank, amount, (playerUuid, score) -> entryList.add(new Entry(
+                firstRank + entryList.size(),
+                playerUuid,
+                this.nameMap.get(playerUuid),
+                score
+        )));
+
+        return Collections.unmodifiableList(entryList);
+    }
+
+    /**
+     * Used to rank the periods again when the day has changed.
+     * Players who have not found treasure in the
+     * days that are kept are removed.
+     */
+    private void updateDay() {
+        long today = FoundRing.today();
+        if (today == this.day) return;
+
+        this.day = today;
+        this.recentFoundMap.values().removeIf(ring -> ring.isEmpty(today));
+
+        for (Map.Entry<Period, RankTree> entry : this.periodTreeMap.entrySet()) {
+            RankTree tree = entry.getValue();
+            tree.clear();
+
+            for (Map.Entry<UUID, FoundRing> ringEntry : this.recentFoundMap.entrySet()) {
+                tree.set(ringEntry.getKey(), ringEntry.getValue().getAmount(today, entry.getKey().getDays()));
+            }
         }
+    }
 
-        List<PlayerData> list = new ArrayList<>(map.descendingMap().values());
+    /**
+     * Used to get a future that completes when the ranking
+     * of a treasure has been created. If the ranking does
+     * not exist, it starts being created.
+     *
+     * @param treasureName The treasure's name.
+     * @return The future that completes when the ranking can be read.
+     * It completes exceptionally if the player data could not be read.
+     */
+    public synchronized @NotNull CompletableFuture<Void> prepare(@NotNull String treasureName) {
+        if (this.getTree(treasureName) != null) return CompletableFuture.completedFuture(null);
+
+        TreasureRanking ranking = this.treasureRankingMap.get(treasureName);
+        if (ranking == null) return CompletableFuture.completedFuture(null);
+        return ranking.createdFuture;
+    }
+
+    /**
+     * Used to get the ranking of a treasure.
+     * If the ranking does not exist, it is created
+     * on the storage executor, after the cached players
+     * have been copied on the main thread.
+     *
+     * @param treasureName The treasure's name.
+     * @return The ranking of the treasure.
+     * Null if it is still being created.
+     */
+    private @Nullable RankTree getTree(@NotNull String treasureName) {
+        this.removeExpired();
+
+        TreasureRanking ranking = this.treasureRankingMap.get(treasureName);
+        if (ranking != null) {
+            ranking.lastUsed = System.currentTimeMillis();
+            return ranking.isCreated() ? ranking.tree : null;
+        }
+
+        TreasureRanking newRanking = new TreasureRanking();
+        this.treasureRankingMap.put(treasureName, newRanking);
+
+        // Count the treasure found by every player.
+        Map<UUID, Integer> amountMap = new HashMap<>();
+        DataStorage.forEachAsync(playerRecord -> {
+            int amount = playerRecord.getTreasureFound(treasureName);
+            if (amount > 0) amountMap.put(playerRecord.getIdentifier(), amount);
+
+        }).whenComplete((ignored, exception) -> this.create(treasureName, newRanking, exception == null ? amountMap : null));
+
+        return null;
+    }
+
+    /**
+     * Used to finish creating the ranking of a treasure.
+     *
+     * @param treasureName The treasure's name.
+     * @param ranking      The ranking being created.
+     * @param amountMap    The amount of the treasure each player had found.
+     *                     Null if the player data could not be read,
+     *                     so the ranking is created again when next used.
+     */
+    private synchronized void create(@NotNull String treasureName,
+                                     @NotNull TreasureRanking ranking,
+                                     @Nullable Map<UUID, Integer> amountMap) {
+
+        // Check if the ranking was removed while it was being created.
+        if (this.treasureRankingMap.get(treasureName) != ranking || ranking.pendingMap == null) {
+            ranking.createdFuture.complete(null);
+            return;
+        }
+
+        if (amountMap == null) {
+            this.treasureRankingMap.remove(treasureName);
+            ranking.createdFuture.completeExceptionally(
+                    new IllegalStateException("Unable to read the player data to rank " + treasureName)
+            );
+            return;
+        }
+
+        amountMap.forEach(ranking.tree::set);
+        ranking.pendingMap.forEach(ranking.tree::add);
+        ranking.replacedMap.forEach(ranking.tree::set);
+        ranking.pendingMap = null;
+        ranking.replacedMap = new HashMap<>();
+        ranking.createdFuture.complete(null);
+    }
+
+    /**
+     * Used to remove the treasure rankings that
+     * have not been used for the leaderboard expiry.
+     */
+    private void removeExpired() {
+        long expiry = ConfigFile.getLeaderboardExpiry() * 1000L;
+        long now = System.currentTimeMillis();
 
-        return list.size() >= rank ? list.get(rank - 1) : null;
+        this.treasureRankingMap.values().removeIf(ranking -> ranking.isCreated() && now - ranking.lastUsed > expiry);
     }
 }
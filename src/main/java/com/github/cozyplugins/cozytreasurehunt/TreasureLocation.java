@@ -30,11 +30,14 @@ import com.github.smuddgge.squishyconfiguration.memory.MemoryConfigurationSectio
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.HashMap;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 
 /**
  * Represents a location of a treasure.
@@ -42,24 +45,37 @@ import java.util.UUID;
 public class TreasureLocation implements ConfigurationConvertable<TreasureLocation>, Savable, Replicable<TreasureLocation> {
 
     private final @NotNull Treasure treasure;
-    private final @NotNull Location location;
+    private final @NotNull BlockKey key;
 
     /**
-     * This field exists because a player could
-     * place a similar block where the treasure is meant to spawn.
+     * The stable ordinal of this location.
+     * This is used to store per-location state compactly.
+     * It will be -1 until the location is inserted into storage.
      */
-    private boolean isSpawned;
+    private int ordinal;
+
+    /**
+     * Used to create a treasure location.
+     *
+     * @param treasure The instance of the treasure.
+     * @param key      The block the treasure is located at.
+     */
+    public TreasureLocation(@NotNull Treasure treasure, @NotNull BlockKey key) {
+        this.treasure = treasure;
+        this.key = key;
+        this.ordinal = -1;
+    }
 
     /**
      * Used to create a treasure location.
      *
      * @param treasure The instance of the treasure.
      * @param location The instance of the location.
+     *                 The location must have a world.
      */
     public TreasureLocation(@NotNull Treasure treasure, @NotNull Location location) {
-        this.treasure = treasure;
-        this.location = location;
-        this.isSpawned = false;
+        this(treasure, BlockKey.of(Objects.requireNonNull(location.getWorld()),
+                location.getBlockX(), location.getBlockY(), location.getBlockZ()));
     }
 
     /**
@@ -68,7 +84,39 @@ public class TreasureLocation implements ConfigurationConvertable<TreasureLocati
      * @return The unique identifier.
      */
     public @NotNull String getIdentifier() {
-        return TreasureLocation.getIdentifier(this.location);
+        return this.key.getIdentifier();
+    }
+
+    /**
+     * Used to get the block the treasure is located at.
+     * This is the compact form of the location.
+     *
+     * @return The block key.
+     */
+    public @NotNull BlockKey getKey() {
+        return this.key;
+    }
+
+    /**
+     * Used to get the stable ordinal of this location.
+     *
+     * @return The ordinal.
+     * -1 if the location has not been inserted into storage.
+     */
+    public int getOrdinal() {
+        return this.ordinal;
+    }
+
+    /**
+     * Used to set the stable ordinal of this location.
+     * This should only be set by the location storage.
+     *
+     * @param ordinal The ordinal.
+     * @return This instance.
+     */
+    public @NotNull TreasureLocation setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+        return this;
     }
 
     /**
@@ -82,25 +130,29 @@ public class TreasureLocation implements ConfigurationConvertable<TreasureLocati
 
     /**
      * Used to get the location where the treasure is located.
+     * A new location is created each time this is called,
+     * and the world will be null if it is not loaded.
      *
      * @return The location of the treasure.
      */
     public @NotNull Location getLocation() {
-        return this.location;
+        return this.key.toLocation();
     }
 
     /**
      * Used to check if a treasure is spawned.
+     * This is stored because a player could place a
+     * similar block where the treasure is meant to spawn.
      *
      * @return True if the treasure is spawned.
      */
     public boolean isSpawned() {
-        return this.isSpawned;
+        return LocationStorage.isSpawned(this);
     }
 
     /**
      * Used to spawn the treasure at the location.
-     * This will also set {@link TreasureLocation#isSpawned} to true.
+     * This will also set {@link TreasureLocation#isSpawned()} to true.
      * <li>
      * Spawning silently will not broadcast with events.
      * This will ensure the spawn of this treasure.
@@ -109,15 +161,14 @@ public class TreasureLocation implements ConfigurationConvertable<TreasureLocati
      * @return This instance.
      */
     public @NotNull TreasureLocation spawnSilently() {
-        this.treasure.spawn(this.location);
-        this.isSpawned = true;
-        this.save();
+        this.treasure.spawn(this.getLocation());
+        LocationStorage.setSpawned(this, true);
         return this;
     }
 
     /**
      * Used to remove the treasure at the location.
-     * This will also set {@link TreasureLocation#isSpawned} to false.
+     * This will also set {@link TreasureLocation#isSpawned()} to false.
      * <li>This will not call the treasure click event.</li>
      * <li>This will check if the treasure should be respawned.</li>
      *
@@ -156,9 +207,9 @@ public class TreasureLocation implements ConfigurationConvertable<TreasureLocati
      * see if it should be respawned.
      */
     public @NotNull TreasureLocation removeForever() {
-        this.location.getBlock().setType(Material.AIR);
-        this.isSpawned = false;
-        this.save();
+        Location location = this.getLocation();
+        if (location.getWorld() != null) location.getBlock().setType(Material.AIR);
+        LocationStorage.setSpawned(this, false);
 
         return this;
     }
@@ -189,9 +240,9 @@ public class TreasureLocation implements ConfigurationConvertable<TreasureLocati
     @Override
     public String toString() {
         return "{" + this.getIdentifier() + ": "
-                + this.location.getBlockX() + " "
-                + this.location.getBlockY() + " "
-                + this.location.getBlockZ() + "}";
+                + this.key.getX() + " "
+                + this.key.getY() + " "
+                + this.key.getZ() + "}";
     }
 
     @Override
@@ -200,20 +251,19 @@ public class TreasureLocation implements ConfigurationConvertable<TreasureLocati
 
         section.set("treasure_identifier", this.treasure.getIdentifier().toString());
 
-        section.set("location.x", this.location.getBlockX());
-        section.set("location.y", this.location.getBlockY());
-        section.set("location.z", this.location.getBlockZ());
-        section.set("location.world", this.location.getWorld() == null
-                ? null : this.location.getWorld().getName());
+        section.set("location.x", this.key.getX());
+        section.set("location.y", this.key.getY());
+        section.set("location.z", this.key.getZ());
+        section.set("location.world", this.key.getWorldName());
 
-        section.set("is_spawned", this.isSpawned);
+        if (this.ordinal >= 0) section.set("ordinal", this.ordinal);
 
         return section;
     }
 
     @Override
     public @NotNull TreasureLocation convert(@NotNull  ConfigurationSection section) {
-        this.isSpawned = section.getBoolean("is_spawned");
+        this.ordinal = section.getInteger("ordinal", -1);
         return this;
     }
 
@@ -235,21 +285,38 @@ public class TreasureLocation implements ConfigurationConvertable<TreasureLocati
      * @return The treasure location.
      */
     public static @Nullable TreasureLocation create(@NotNull ConfigurationSection data) {
+        return TreasureLocation.create(data, TreasureStorage::get);
+    }
+
+    /**
+     * Used to create a treasure location based on a configuration section.
+     * The treasure provider lets many locations share the same treasure instance.
+     *
+     * @param data             The instance of the data.
+     * @param treasureProvider Used to get the treasure from its identifier.
+     * @return The treasure location.
+     * Null if the treasure no longer exists or the world is not loaded.
+     */
+    public static @Nullable TreasureLocation create(@NotNull ConfigurationSection data,
+                                                    @NotNull Function<UUID, Treasure> treasureProvider) {
 
         // Get the treasure.
         UUID treasure_identifier = UUID.fromString(data.getString("treasure_identifier"));
-        Treasure treasure = TreasureStorage.get(treasure_identifier);
+        Treasure treasure = treasureProvider.apply(treasure_identifier);
         if (treasure == null) return null;
 
-        // Get the location.
-        Location location = new Location(
-                Bukkit.getWorld(data.getString("location.world")),
+        // Get the world.
+        World world = Bukkit.getWorld(data.getString("location.world"));
+        if (world == null) return null;
+
+        BlockKey key = BlockKey.of(
+                world,
                 data.getInteger("location.x"),
                 data.getInteger("location.y"),
                 data.getInteger("location.z")
         );
 
-        TreasureLocation treasureLocation = new TreasureLocation(treasure, location);
+        TreasureLocation treasureLocation = new TreasureLocation(treasure, key);
         treasureLocation.convert(data);
         return treasureLocation;
     }
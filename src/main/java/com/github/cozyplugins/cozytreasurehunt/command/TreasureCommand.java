@@ -43,6 +43,7 @@ public class TreasureCommand implements CommandType {
         pool.add(new SpawnCommand());
         pool.add(new UnSpawnCommand());
         pool.add(new SaveToCommand());
+        pool.add(new TopCommand());
 
         return pool;
     }
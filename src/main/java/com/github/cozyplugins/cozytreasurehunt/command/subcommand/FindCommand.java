@@ -101,17 +101,17 @@ public class FindCommand implements CommandType {
             TextComponent message = new TextComponent(
                     MessageManager.parse(
                             section.getString("line", "&e&l{name} &7is at &f{location}&7. &eClick to teleport.")
-                                    .replace("{location}", location.getLocation().getBlockX()
-                                            + " " + location.getLocation().getBlockY() + " " + location.getLocation().getBlockZ())
+                                    .replace("{location}", location.getKey().getX()
+                                            + " " + location.getKey().getY() + " " + location.getKey().getZ())
                                     .replace("{name}", location.getTreasure().getName())
                             , user.getPlayer()
                     )
             );
 
             String teleportCommand = "/tp " +
-                    location.getLocation().getBlockX() + " " +
-                    location.getLocation().getBlockY() + " " +
-                    location.getLocation().getBlockZ();
+                    location.getKey().getX() + " " +
+                    location.getKey().getY() + " " +
+                    location.getKey().getZ();
 
             message.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, teleportCommand));
             message.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new ComponentBuilder(MessageManager.parse("&6&lTeleport")).create()));
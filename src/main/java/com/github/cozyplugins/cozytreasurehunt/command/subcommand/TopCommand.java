@@ -0,0 +1,180 @@
+package com.github.cozyplugins.cozytreasurehunt.command.subcommand;
+
+import com.github.cozyplugins.cozylibrary.command.command.CommandType;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandArguments;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandStatus;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandSuggestions;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandTypePool;
+import com.github.cozyplugins.cozylibrary.user.ConsoleUser;
+import com.github.cozyplugins.cozylibrary.user.FakeUser;
+import com.github.cozyplugins.cozylibrary.user.PlayerUser;
+import com.github.cozyplugins.cozylibrary.user.User;
+import com.github.cozyplugins.cozytreasurehunt.Leaderboard;
+import com.github.cozyplugins.cozytreasurehunt.storage.DataStorage;
+import com.github.cozyplugins.cozytreasurehunt.storage.StorageExecutor;
+import com.github.cozyplugins.cozytreasurehunt.storage.TreasureStorage;
+import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the top command.
+ * Used to show a page of the leaderboard.
+ */
+public class TopCommand implements CommandType {
+
+    @Override
+    public @NotNull String getIdentifier() {
+        return "top";
+    }
+
+    @Override
+    public @Nullable String getSyntax() {
+        return "/[parent] [name] <optional treasure type, daily or weekly> <optional page>";
+    }
+
+    @Override
+    public @Nullable String getDescription() {
+        return "Used to show the players that have found the most treasure.";
+    }
+
+    @Override
+    public @Nullable CommandTypePool getSubCommandTypes() {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandSuggestions getSuggestions(@NotNull User user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        List<String> suggestions = new ArrayList<>(TreasureStorage.getAllNames());
+        suggestions.add("daily");
+        suggestions.add("weekly");
+        return new CommandSuggestions().append(suggestions);
+    }
+
+    @Override
+    public @Nullable CommandStatus onUser(@NotNull User user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        String leaderboardName = null;
+        int pageSize = Math.max(section.getInteger("page_size", 10), 1);
+        int page = 1;
+
+        // The last page that can be shown without the offset overflowing.
+        int maxPage = Integer.MAX_VALUE / pageSize;
+
+        // Get the leaderboard and page.
+        // The page is the argument after the optional leaderboard name,
+        // so treasure types with numbers as names can still be shown.
+        List<String> argumentList = arguments.getArguments().subList(1, arguments.getArguments().size());
+        String pageArgument = null;
+        if (argumentList.size() == 1 && argumentList.get(0).matches("[0-9]+")
+                && TreasureStorage.getFirst(argumentList.get(0)) == null) {
+            pageArgument = argumentList.get(0);
+        } else if (!argumentList.isEmpty()) {
+            leaderboardName = argumentList.get(0);
+            if (argumentList.size() > 1) pageArgument = argumentList.get(1);
+        }
+
+        if (pageArgument != null) {
+            if (!pageArgument.matches("[0-9]+")) {
+                user.sendMessage(section.getString("invalid_page", "&7The page must be a number."));
+                return new CommandStatus();
+            }
+
+            try {
+                page = Math.min(Math.max(Integer.parseInt(pageArgument), 1), maxPage);
+            } catch (NumberFormatException exception) {
+                // The number is too big to be an integer.
+                page = maxPage;
+            }
+        }
+
+        String name = leaderboardName;
+        int pageNumber = page;
+        boolean isPeriod = name != null && (name.equals("daily") || name.equals("weekly"));
+
+        // Wait for the treasure's leaderboard to be created without blocking the main thread.
+        StorageExecutor.toMainThread(DataStorage.getLeaderboardAsync(name == null || isPeriod ? null : name))
+                .whenComplete((leaderboard, exception) -> {
+                    if (exception != null) {
+                        user.sendMessage(section.getString("error", "&7The leaderboard could not be created. Try again later."));
+                        return;
+                    }
+
+                    this.sendPage(user, section, leaderboard, name, pageNumber, pageSize);
+                });
+
+        return new CommandStatus();
+    }
+
+    /**
+     * Used to send a page of a leaderboard to a user.
+     *
+     * @param user            The user.
+     * @param section         The command's configuration section.
+     * @param leaderboard     The leaderboard.
+     * @param leaderboardName The treasure, daily or weekly.
+     *                        Null for all treasure.
+     * @param page            The page, starting at 1.
+     * @param pageSize        The amount of players on a page.
+     */
+    private void sendPage(@NotNull User user,
+                          @NotNull ConfigurationSection section,
+                          @NotNull Leaderboard leaderboard,
+                          @Nullable String leaderboardName,
+                          int page,
+                          int pageSize) {
+
+        int offset = (page - 1) * pageSize;
+
+        List<Leaderboard.Entry> entryList;
+        if (leaderboardName == null) {
+            entryList = leaderboard.top(pageSize, offset);
+        } else if (leaderboardName.equals("daily") || leaderboardName.equals("weekly")) {
+            entryList = leaderboard.top(pageSize, offset, Leaderboard.Period.valueOf(leaderboardName.toUpperCase()));
+        } else {
+            entryList = leaderboard.top(pageSize, offset, leaderboardName);
+        }
+
+        // Check if the treasure's leaderboard expired again before it was read.
+        if (entryList == null) {
+            user.sendMessage(section.getString("loading", "&7The leaderboard is being created. Try again in a moment."));
+            return;
+        }
+
+        // Send header.
+        user.sendMessage(section.getString("header", "&aTop treasure hunters &7for &f{leaderboard} &7page &f{page}")
+                .replace("{leaderboard}", leaderboardName == null ? "all treasure" : leaderboardName)
+                .replace("{page}", String.valueOf(page))
+        );
+
+        if (entryList.isEmpty()) {
+            user.sendMessage(section.getString("empty", "&7There are no players on this page."));
+            return;
+        }
+
+        for (Leaderboard.Entry entry : entryList) {
+            user.sendMessage(section.getString("line", "&e#{rank} &f{name} &7found &f{amount}")
+                    .replace("{rank}", String.valueOf(entry.rank()))
+                    .replace("{name}", entry.name() == null ? "NoName" : entry.name())
+                    .replace("{amount}", String.valueOf(entry.amount()))
+            );
+        }
+    }
+
+    @Override
+    public @Nullable CommandStatus onPlayer(@NotNull PlayerUser user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandStatus onFakeUser(@NotNull FakeUser user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandStatus onConsole(@NotNull ConsoleUser user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return null;
+    }
+}
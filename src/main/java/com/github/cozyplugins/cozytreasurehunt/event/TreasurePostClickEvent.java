@@ -23,7 +23,6 @@ import com.github.cozyplugins.cozylibrary.user.PlayerUser;
 import com.github.cozyplugins.cozytreasurehunt.Treasure;
 import com.github.cozyplugins.cozytreasurehunt.TreasureLocation;
 import com.github.cozyplugins.cozytreasurehunt.event.type.SimpleClickAction;
-import com.github.cozyplugins.cozytreasurehunt.storage.DataStorage;
 import com.github.cozyplugins.cozytreasurehunt.storage.PlayerData;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
@@ -62,20 +61,24 @@ public class TreasurePostClickEvent extends CozyEvent {
 
     private final @NotNull TreasureLocation treasureLocation;
     private final @NotNull PlayerInteractEvent event;
+    private final @NotNull PlayerData playerData;
 
     /**
      * Used to create a treasure click event.
      *
      * @param treasureLocation The instance of the treasure location.
      * @param event            The instance of the {@link PlayerInteractEvent} event.
+     * @param playerData       The cached data of the player that clicked the treasure.
      */
     public TreasurePostClickEvent(
             @NotNull TreasureLocation treasureLocation,
-            @NotNull PlayerInteractEvent event
+            @NotNull PlayerInteractEvent event,
+            @NotNull PlayerData playerData
     ) {
 
         this.treasureLocation = treasureLocation;
         this.event = event;
+        this.playerData = playerData;
     }
 
     /**
@@ -93,7 +96,7 @@ public class TreasurePostClickEvent extends CozyEvent {
      * @return The players treasure data.
      */
     public @NotNull PlayerData getPlayerData() {
-        return DataStorage.get(this.getPlayer().getUuid());
+        return this.playerData;
     }
 
     /**
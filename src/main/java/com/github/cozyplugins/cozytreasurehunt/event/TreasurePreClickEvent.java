@@ -19,6 +19,7 @@
 package com.github.cozyplugins.cozytreasurehunt.event;
 
 import com.github.cozyplugins.cozytreasurehunt.TreasureLocation;
+import com.github.cozyplugins.cozytreasurehunt.storage.PlayerData;
 import org.bukkit.event.Cancellable;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.player.PlayerInteractEvent;
@@ -60,9 +61,12 @@ public class TreasurePreClickEvent extends TreasurePostClickEvent implements Can
      *
      * @param treasureLocation The instance of the treasure location.
      * @param event            The instance of the {@link PlayerInteractEvent} event.
+     * @param playerData       The cached data of the player that clicked the treasure.
      */
-    public TreasurePreClickEvent(@NotNull TreasureLocation treasureLocation, @NotNull PlayerInteractEvent event) {
-        super(treasureLocation, event);
+    public TreasurePreClickEvent(@NotNull TreasureLocation treasureLocation,
+                                 @NotNull PlayerInteractEvent event,
+                                 @NotNull PlayerData playerData) {
+        super(treasureLocation, event, playerData);
 
         this.isCancelled = false;
     }
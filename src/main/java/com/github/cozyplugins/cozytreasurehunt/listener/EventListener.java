@@ -18,15 +18,23 @@
 
 package com.github.cozyplugins.cozytreasurehunt.listener;
 
+import com.github.cozyplugins.cozytreasurehunt.BlockKey;
 import com.github.cozyplugins.cozytreasurehunt.TreasureLocation;
 import com.github.cozyplugins.cozytreasurehunt.event.TreasurePostClickEvent;
 import com.github.cozyplugins.cozytreasurehunt.event.TreasurePreClickEvent;
+import com.github.cozyplugins.cozytreasurehunt.storage.DataStorage;
 import com.github.cozyplugins.cozytreasurehunt.storage.LocationStorage;
+import com.github.cozyplugins.cozytreasurehunt.storage.PlayerData;
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.WorldLoadEvent;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -51,16 +59,23 @@ public class EventListener implements Listener {
         // Did the player click a block.
         if (event.getClickedBlock() == null) return;
 
-        // Check if the location is in storage.
-        if (!LocationStorage.contains(event.getClickedBlock().getLocation())) return;
-
         // Get the treasure location.
-        TreasureLocation treasureLocation = LocationStorage.get(event.getClickedBlock().getLocation());
+        // Null if the location is not in storage.
+        TreasureLocation treasureLocation = LocationStorage.get(BlockKey.of(event.getClickedBlock()));
         if (treasureLocation == null) return;
 
         // Is the treasure spawned?
         if (!treasureLocation.isSpawned()) return;
 
+        // Check if the player's data is still being loaded.
+        // It is loaded off the main thread, so the player can click again once it is cached.
+        PlayerData playerData = DataStorage.getCached(event.getPlayer().getUniqueId());
+        if (playerData == null) {
+            DataStorage.getAsync(event.getPlayer().getUniqueId());
+            event.setCancelled(true);
+            return;
+        }
+
         // Check if the player is in the map.
         // Meaning they have clicked most recently.
         if (playerMap.containsKey(event.getPlayer().getUniqueId())) {
@@ -79,7 +94,7 @@ public class EventListener implements Listener {
         playerMap.put(event.getPlayer().getUniqueId(), System.currentTimeMillis());
 
         // Call the treasure click event.
-        TreasurePreClickEvent treasureClickEvent = new TreasurePreClickEvent(treasureLocation, event);
+        TreasurePreClickEvent treasureClickEvent = new TreasurePreClickEvent(treasureLocation, event, playerData);
         Bukkit.getPluginManager().callEvent(treasureClickEvent);
 
         // Check if the event has been canceled.
@@ -90,6 +105,40 @@ public class EventListener implements Listener {
 
         // Call the treasure post click event.
         // This is where plugins will respond to a player clicking a treasure.
-        Bukkit.getPluginManager().callEvent(new TreasurePostClickEvent(treasureLocation, event));
+        Bukkit.getPluginManager().callEvent(new TreasurePostClickEvent(treasureLocation, event, playerData));
+    }
+
+    @EventHandler
+    public void onWorldLoad(WorldLoadEvent event) {
+        // Register the treasure locations in worlds loaded after this plugin.
+        LocationStorage.loadWorld(event.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+        // Read the player's data before they join, off the main thread.
+        DataStorage.load(event.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() == PlayerLoginEvent.Result.ALLOWED) return;
+
+        // The player was loaded but will not join.
+        DataStorage.unload(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        // Players are usually loaded before they join.
+        // Otherwise, they are loaded off the main thread.
+        DataStorage.getAsync(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        DataStorage.unload(event.getPlayer().getUniqueId());
     }
 }
@@ -89,7 +89,7 @@ public class TreasureListener implements Listener {
         }
 
         // Add treasure to player data.
-        playerData.increaseTreasureFound(treasureLocation);
+        DataStorage.increaseTreasureFound(playerData, treasureLocation);
 
         // Player information.
         ConfigurationSection section = playerData.getInformation();
@@ -3,16 +3,21 @@ package com.github.cozyplugins.cozytreasurehunt.placeholder;
 import com.github.cozyplugins.cozylibrary.placeholder.CozyPlaceholder;
 import com.github.cozyplugins.cozytreasurehunt.Leaderboard;
 import com.github.cozyplugins.cozytreasurehunt.storage.DataStorage;
-import com.github.cozyplugins.cozytreasurehunt.storage.PlayerData;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.UUID;
+
 /**
  * Represents the leaderboard placeholder.
  * <p>
  * %_leaderboard_[rank]%
  * %_leaderboard_[rank]_amount%
+ * %_leaderboard_daily_[rank]%
+ * %_leaderboard_daily_[rank]_amount%
+ * %_leaderboard_weekly_[rank]%
+ * %_leaderboard_weekly_[rank]_amount%
  * %_leaderboard_[treasurename]_[rank]%
  * %_leaderboard_[treasurename]_[rank]_amount%
  * </p>
@@ -33,27 +38,63 @@ public class LeaderboardPlaceholder implements CozyPlaceholder {
         if (args.length < 2) return "null";
 
         // If a rank is specified.
-        if (args[1].matches("[0-9]")) {
+        if (args[1].matches("[0-9]+")) {
 
-            PlayerData playerData = leaderboard.get(Integer.parseInt(args[1]));
-            if (playerData == null) return "Empty";
+            UUID playerUuid = leaderboard.get(LeaderboardPlaceholder.parseRank(args[1]));
+            if (playerUuid == null) return "Empty";
 
             // If they want the players name.
             if (args.length == 2) {
-                return playerData.getInformation().getString("name", "NoName");
+                String name = leaderboard.getName(playerUuid);
+                return name == null ? "NoName" : name;
+            }
+
+            return Integer.toString(leaderboard.getAmountFound(playerUuid));
+        }
+
+        // Check if the rank is missing.
+        if (args.length < 3) return "null";
+
+        // If a period is specified.
+        if (args[1].equals("daily") || args[1].equals("weekly")) {
+            Leaderboard.Period period = Leaderboard.Period.valueOf(args[1].toUpperCase());
+
+            UUID playerUuid = leaderboard.get(LeaderboardPlaceholder.parseRank(args[2]), period);
+            if (playerUuid == null) return "Empty";
+
+            // If they want the players name.
+            if (args.length == 3) {
+                String name = leaderboard.getName(playerUuid);
+                return name == null ? "NoName" : name;
             }
 
-            return Integer.toString(playerData.getAmountFound());
+            return Integer.toString(leaderboard.getAmountFound(playerUuid, period));
         }
 
-        PlayerData playerData = leaderboard.get(Integer.parseInt(args[2]));
-        if (playerData == null) return "Empty";
+        UUID playerUuid = leaderboard.get(LeaderboardPlaceholder.parseRank(args[2]), args[1]);
+        if (playerUuid == null) return "Empty";
 
         // If they want the players name.
         if (args.length == 3) {
-            return playerData.getInformation().getString("name", "NoName");
+            String name = leaderboard.getName(playerUuid);
+            return name == null ? "NoName" : name;
         }
 
-        return Integer.toString(playerData.getTreasureFound(args[0]));
+        return Integer.toString(leaderboard.getTreasureFound(playerUuid, args[1]));
+    }
+
+    /**
+     * Used to get a rank from an argument of the placeholder.
+     *
+     * @param argument The argument.
+     * @return The rank.
+     * 0 if the argument is not a number that fits in an integer.
+     */
+    private static int parseRank(@NotNull String argument) {
+        try {
+            return Integer.parseInt(argument);
+        } catch (NumberFormatException exception) {
+            return 0;
+        }
     }
 }
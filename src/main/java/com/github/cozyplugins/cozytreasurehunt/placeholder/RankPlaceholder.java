@@ -0,0 +1,50 @@
+package com.github.cozyplugins.cozytreasurehunt.placeholder;
+
+import com.github.cozyplugins.cozylibrary.placeholder.CozyPlaceholder;
+import com.github.cozyplugins.cozytreasurehunt.Leaderboard;
+import com.github.cozyplugins.cozytreasurehunt.storage.DataStorage;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Represents the rank placeholder.
+ * Used to get the player's own rank in the leaderboard.
+ * <p>
+ * %_rank%
+ * %_rank_daily%
+ * %_rank_weekly%
+ * %_rank_[treasure name]%
+ * </p>
+ */
+public class RankPlaceholder implements CozyPlaceholder {
+
+    @Override
+    public @NotNull String getIdentifier() {
+        return "rank";
+    }
+
+    @Override
+    public @NotNull String getValue(@Nullable Player player, @NotNull String params) {
+        String[] args = params.split("_");
+        Leaderboard leaderboard = DataStorage.getLeaderboard();
+
+        // Check if there is a player.
+        if (player == null) return "null";
+
+        // Check which leaderboard they are requesting.
+        int rank;
+        if (args.length == 1) {
+            rank = leaderboard.getRank(player.getUniqueId());
+        } else if (args[1].equals("daily") || args[1].equals("weekly")) {
+            rank = leaderboard.getRank(player.getUniqueId(), Leaderboard.Period.valueOf(args[1].toUpperCase()));
+        } else {
+            rank = leaderboard.getRank(player.getUniqueId(), args[1]);
+        }
+
+        // Check if the player is not on the leaderboard.
+        if (rank == 0) return "Unranked";
+
+        return String.valueOf(rank);
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.cozyplugins.cozytreasurehunt.placeholder;
+
+import com.github.cozyplugins.cozylibrary.placeholder.CozyPlaceholder;
+import com.github.cozyplugins.cozytreasurehunt.Leaderboard;
+import com.github.cozyplugins.cozytreasurehunt.storage.DataStorage;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Represents the top placeholder.
+ * Used to get the first ranks of the leaderboard
+ * with one line for each rank.
+ * <p>
+ * %_top_[amount]%
+ * %_top_daily_[amount]%
+ * %_top_weekly_[amount]%
+ * %_top_[treasurename]_[amount]%
+ * </p>
+ */
+public class TopPlaceholder implements CozyPlaceholder {
+
+    @Override
+    public @NotNull String getIdentifier() {
+        return "top";
+    }
+
+    @Override
+    public @NotNull String getValue(@Nullable Player player, @NotNull String params) {
+        String[] args = params.split("_");
+        Leaderboard leaderboard = DataStorage.getLeaderboard();
+
+        // Check if there are arguments.
+        if (args.length < 2) return "null";
+
+        // Get the amount of players to show.
+        int amount;
+        try {
+            amount = Integer.parseInt(args[args.length == 2 ? 1 : 2]);
+        } catch (NumberFormatException exception) {
+            return "null";
+        }
+
+        List<Leaderboard.Entry> entryList;
+        if (args.length == 2) {
+            entryList = leaderboard.top(amount, 0);
+        } else if (args[1].equals("daily") || args[1].equals("weekly")) {
+            entryList = leaderboard.top(amount, 0, Leaderboard.Period.valueOf(args[1].toUpperCase()));
+        } else {
+            entryList = leaderboard.top(amount, 0, args[1]);
+        }
+
+        if (entryList == null || entryList.isEmpty()) return "Empty";
+
+        StringBuilder builder = new StringBuilder();
+        for (Leaderboard.Entry entry : entryList) {
+            if (builder.length() > 0) builder.append("\n");
+
+            builder.append("#").append(entry.rank())
+                    .append(" ").append(entry.name() == null ? "NoName" : entry.name())
+                    .append(" ").append(entry.amount());
+        }
+
+        return builder.toString();
+    }
+}
@@ -2,6 +2,7 @@ package com.github.cozyplugins.cozytreasurehunt.placeholder;
 
 import com.github.cozyplugins.cozylibrary.placeholder.CozyPlaceholder;
 import com.github.cozyplugins.cozytreasurehunt.storage.DataStorage;
+import com.github.cozyplugins.cozytreasurehunt.storage.PlayerData;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -44,11 +45,15 @@ public class TotalPlaceholder implements CozyPlaceholder {
             return String.valueOf(DataStorage.getTotalTreasureFound());
         }
 
+        // Only cached players are used, so no files are read.
+        PlayerData playerData = DataStorage.getCached(player.getUniqueId());
+        if (playerData == null) return "0";
+
         // Check if there is no treasure specified.
         if (args.length > 1) {
-            return String.valueOf(DataStorage.get(player.getUniqueId()).getTreasureFound(args[1]));
+            return String.valueOf(playerData.getTreasureFound(args[1]));
         }
 
-        return String.valueOf(DataStorage.get(player.getUniqueId()).getAmountFound());
+        return String.valueOf(playerData.getAmountFound());
     }
 }
@@ -1,5 +1,6 @@
 package com.github.cozyplugins.cozytreasurehunt.storage;
 
+import com.github.cozyplugins.cozylibrary.ConsoleManager;
 import com.github.cozyplugins.cozylibrary.CozyPlugin;
 import com.github.smuddgge.squishyconfiguration.implementation.YamlConfiguration;
 import org.jetbrains.annotations.NotNull;
@@ -8,6 +9,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.ZoneId;
 
 /**
  * Represents the configuration file.
@@ -16,6 +20,12 @@ public class ConfigFile {
 
     private static @NotNull YamlConfiguration config;
 
+    /**
+     * The clock used to get the current day,
+     * in the time zone from the configuration file.
+     */
+    private static volatile @NotNull Clock clock = Clock.systemDefaultZone();
+
     /**
      * Used to create the default configuration file.
      * If it was created this method will return true.
@@ -49,6 +59,38 @@ public class ConfigFile {
         // Create configuration instance.
         ConfigFile.config = new YamlConfiguration(file);
         ConfigFile.config.load();
+        ConfigFile.clock = ConfigFile.createClock();
+    }
+
+    /**
+     * Used to create the clock in the time zone
+     * from the configuration file.
+     *
+     * @return The clock.
+     * In the server's time zone if no valid time zone is set.
+     */
+    private static @NotNull Clock createClock() {
+        String timeZone = ConfigFile.config.getString("time_zone", "");
+        if (timeZone.isBlank()) return Clock.systemDefaultZone();
+
+        try {
+            return Clock.system(ZoneId.of(timeZone));
+        } catch (DateTimeException exception) {
+            ConsoleManager.warn("The time zone " + timeZone + " in the config file is not valid. The server's time zone will be used.");
+            return Clock.systemDefaultZone();
+        }
+    }
+
+    /**
+     * Used to get the clock used to get the current day,
+     * so the daily and weekly leaderboards change day
+     * at midnight in the time zone from the config file.
+     * This can be called from any thread.
+     *
+     * @return The clock.
+     */
+    public static @NotNull Clock getClock() {
+        return ConfigFile.clock;
     }
 
     /**
@@ -71,4 +113,75 @@ public class ConfigFile {
         return ConfigFile.config.getString("global_treasure_limit_message",
                 "&7You have reached the global treasure limit. You cannot redeem any more treasure.");
     }
+
+    /**
+     * Used to get how often changes to treasure
+     * locations are written to the location files.
+     *
+     * @return The interval in seconds.
+     */
+    public static int getLocationSaveInterval() {
+        return Math.max(1, ConfigFile.config.getInteger("location_save_interval", 5));
+    }
+
+    /**
+     * Used to check if location changes should be appended
+     * to a journal until they are written to the location files.
+     *
+     * @return True if the location journal is enabled.
+     */
+    public static boolean isLocationJournalEnabled() {
+        return ConfigFile.config.getBoolean("location_journal", true);
+    }
+
+    /**
+     * Used to get how often changes to the
+     * cached player data are written to the data file.
+     *
+     * @return The interval in seconds.
+     */
+    public static int getDataSaveInterval() {
+        return Math.max(1, ConfigFile.config.getInteger("data_save_interval", 30));
+    }
+
+    /**
+     * Used to check if the storage directories should be
+     * watched for files that are changed outside the plugin.
+     *
+     * @return True if the storage files are watched.
+     */
+    public static boolean isWatchFilesEnabled() {
+        return ConfigFile.config.getBoolean("watch_files", false);
+    }
+
+    /**
+     * Used to get the type of storage player data is saved to.
+     *
+     * @return The storage type in lower case.
+     * Either yaml or sqlite.
+     */
+    public static @NotNull String getDataStorageType() {
+        return ConfigFile.config.getString("data_storage", "yaml").toLowerCase();
+    }
+
+    /**
+     * Used to get how many previous seasons of player
+     * data are kept when a new season starts.
+     *
+     * @return The amount of previous seasons.
+     * -1 if every season is kept.
+     */
+    public static int getSeasonHistory() {
+        return ConfigFile.config.getInteger("season_history", 5);
+    }
+
+    /**
+     * Used to get how long a treasure's leaderboard is
+     * kept in memory after it was last used.
+     *
+     * @return The amount of seconds.
+     */
+    public static int getLeaderboardExpiry() {
+        return ConfigFile.config.getInteger("leaderboard_expiry", 300);
+    }
 }
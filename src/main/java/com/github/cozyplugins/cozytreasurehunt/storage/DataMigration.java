@@ -0,0 +1,170 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage;
+
+import com.github.cozyplugins.cozylibrary.ConsoleManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Represents the migration of a single player data
+ * file to a file for each player.
+ * <p>
+ * The old file is read one line at a time. Each top level
+ * player key starts a new player file, and the lines below it
+ * are copied as they are, so the old file is never fully
+ * loaded into memory.
+ * </p>
+ * <li>
+ * Player files that already exist are not replaced,
+ * so a migration that was stopped can be run again.
+ * </li>
+ */
+public class DataMigration {
+
+    /**
+     * Used to migrate a single player data file.
+     * When it is complete, the old file is renamed
+     * so it is not migrated again.
+     *
+     * @param legacyFile The single player data file.
+     * @param fileGetter Used to get the file of a player.
+     * @return The amount of players migrated.
+     * -1 if the migration failed.
+     */
+    public static int migrate(@NotNull File legacyFile, @NotNull Function<UUID, File> fileGetter) {
+        int amount = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(legacyFile.toPath(), StandardCharsets.UTF_8)) {
+            BufferedWriter writer = null;
+            File temporary = null;
+            File target = null;
+
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+
+                    // Check if the line is indented and belongs to the current player.
+                    if (Character.isWhitespace(line.charAt(0))) {
+                        if (writer != null) {
+                            writer.write(line);
+                            writer.newLine();
+                        }
+                        continue;
+                    }
+
+                    // Finish the previous player.
+                    if (writer != null) {
+                        writer.close();
+                        writer = null;
+                        DataMigration.move(temporary, target);
+                        amount++;
+                    }
+
+                    UUID playerUuid = DataMigration.getPlayerUuid(line);
+                    if (playerUuid == null) continue;
+
+                    // Check if the player was already migrated.
+                    target = fileGetter.apply(playerUuid);
+                    if (target.exists()) continue;
+
+                    File parent = target.getParentFile();
+                    if (!parent.exists() && !parent.mkdirs()) {
+                        throw new IOException("Unable to create the directory " + parent.getAbsolutePath());
+                    }
+
+                    temporary = new File(parent, target.getName() + ".tmp");
+                    writer = Files.newBufferedWriter(temporary.toPath(), StandardCharsets.UTF_8);
+                    writer.write(line);
+                    writer.newLine();
+                }
+
+                // Finish the last player.
+                if (writer != null) {
+                    writer.close();
+                    writer = null;
+                    DataMigration.move(temporary, target);
+                    amount++;
+                }
+
+            } finally {
+                if (writer != null) writer.close();
+            }
+
+        } catch (IOException exception) {
+            ConsoleManager.error("Unable to migrate the player data file " + legacyFile.getAbsolutePath()
+                    + ". The file was not changed and the migration will be attempted again on the next start.");
+            exception.printStackTrace();
+            return -1;
+        }
+
+        File migratedFile = new File(legacyFile.getParentFile(), legacyFile.getName() + ".migrated");
+        if (!legacyFile.renameTo(migratedFile)) {
+            ConsoleManager.warn("Unable to rename the migrated player data file " + legacyFile.getAbsolutePath());
+        }
+
+        return amount;
+    }
+
+    /**
+     * Used to get the player uuid from a top level key.
+     *
+     * @param line The line, for example {@code 1c4a...:}.
+     * @return The player uuid.
+     * Null if the line is not a player key.
+     */
+    private static @Nullable UUID getPlayerUuid(@NotNull String line) {
+        int index = line.indexOf(':');
+        if (index < 0) return null;
+
+        String key = line.substring(0, index).trim();
+        if (key.length() > 2 && (key.startsWith("'") || key.startsWith("\""))) {
+            key = key.substring(1, key.length() - 1);
+        }
+        if (key.length() != 36) return null;
+
+        try {
+            return UUID.fromString(key);
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Used to move a written player file into place.
+     *
+     * @param temporary The written file.
+     * @param target    The player's file.
+     * @throws IOException If the file could not be moved.
+     */
+    private static void move(@NotNull File temporary, @NotNull File target) throws IOException {
+        Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -19,18 +19,29 @@
 package com.github.cozyplugins.cozytreasurehunt.storage;
 
 import com.github.cozyplugins.cozylibrary.ConsoleManager;
+import com.github.cozyplugins.cozylibrary.configuration.ConfigurationDirectory;
 import com.github.cozyplugins.cozytreasurehunt.Leaderboard;
 import com.github.cozyplugins.cozytreasurehunt.TreasureLocation;
 import com.github.cozyplugins.cozytreasurehunt.storage.configuration.DataConfigurationDirectory;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.FoundTotals;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.OrdinalSet;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.RedemptionIndex;
+import com.github.cozyplugins.cozytreasurehunt.storage.provider.PlayerDataProvider;
+import com.github.cozyplugins.cozytreasurehunt.storage.provider.SqlitePlayerDataProvider;
+import com.github.cozyplugins.cozytreasurehunt.storage.provider.YamlPlayerDataProvider;
 import com.github.smuddgge.squishyconfiguration.implementation.YamlConfiguration;
-import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
+import com.github.smuddgge.squishyconfiguration.memory.MemoryConfigurationSection;
+import org.bukkit.Bukkit;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Represents the data storage.
@@ -46,6 +57,196 @@ public class DataStorage {
 
     private static final @NotNull DataConfigurationDirectory storage = new DataConfigurationDirectory();
 
+    /**
+     * Where the player data is saved.
+     * Kept until the save location changes.
+     */
+    private static @Nullable PlayerDataProvider provider;
+
+    /**
+     * The player data of online players.
+     * Changes are kept in memory and written by {@link DataStorage#flush()}.
+     */
+    private static final @NotNull Map<UUID, PlayerData> playerDataMap = new ConcurrentHashMap<>();
+
+    /**
+     * The players in the cache with changes that have not been written.
+     */
+    private static final @NotNull Set<UUID> dirtySet = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The player data that was submitted to be written,
+     * but has not been written yet. Reads check this first,
+     * so they do not return older data from the file.
+     */
+    private static final @NotNull Map<UUID, Map<String, Object>> pendingWriteMap = new ConcurrentHashMap<>();
+
+    /**
+     * The players that are not cached whose data could not be written.
+     * Their data is kept in the pending write map and written
+     * again on the next {@link DataStorage#flush()}.
+     */
+    private static final @NotNull Set<UUID> failedWriteSet = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The players that have redeemed each treasure location.
+     * Updated by {@link PlayerData} when a location is redeemed or reset.
+     */
+    private static final @NotNull RedemptionIndex redemptionIndex = new RedemptionIndex();
+
+    /**
+     * The amount of treasure found by every player.
+     * Counted from the records read when the players are indexed,
+     * so it always matches the saved player data, and updated
+     * by {@link DataStorage#increaseTreasureFound(PlayerData, TreasureLocation)}.
+     */
+    private static final @NotNull FoundTotals foundTotals = new FoundTotals();
+
+    /**
+     * The players ordered by the amount of treasure they have found.
+     * Updated by {@link DataStorage#increaseTreasureFound(PlayerData, TreasureLocation)}.
+     */
+    private static final @NotNull Leaderboard leaderboard = new Leaderboard();
+
+    /**
+     * Used to load the data storage.
+     * When using a database that is empty, the player
+     * files at the save location are imported into it.
+     */
+    public static void load() {
+        DataStorage.close();
+        DataStorage.importPlayers();
+        DataStorage.indexPlayers();
+    }
+
+    /**
+     * Used to import the player files at the save
+     * location when using a database that is empty.
+     */
+    private static void importPlayers() {
+        PlayerDataProvider provider = DataStorage.getProvider();
+        if (!(provider instanceof SqlitePlayerDataProvider)) return;
+        if (!provider.getPlayerUuids().isEmpty()) return;
+
+        YamlPlayerDataProvider yamlProvider = new YamlPlayerDataProvider(storage.getDirectory(), DataStorage.getDataName());
+        yamlProvider.load();
+
+        List<UUID> playerUuidList = yamlProvider.getPlayerUuids();
+        if (playerUuidList.isEmpty()) return;
+
+        ConsoleManager.warn("Importing the player data of " + playerUuidList.size() + " players into the database.");
+        Map<UUID, Map<String, Object>> batch = new LinkedHashMap<>();
+
+        for (UUID playerUuid : playerUuidList) {
+            Map<String, Object> data = yamlProvider.read(playerUuid);
+            if (data != null) batch.put(playerUuid, data);
+
+            if (batch.size() < 500) continue;
+            if (!DataStorage.importBatch(provider, batch)) return;
+            batch = new LinkedHashMap<>();
+        }
+
+        DataStorage.importBatch(provider, batch);
+    }
+
+    /**
+     * Used to write a batch of imported players to the database.
+     * If the batch could not be written, the database is emptied,
+     * so the import is tried again on the next load.
+     *
+     * @param provider The database provider.
+     * @param batch    The map of player uuids to their data.
+     * @return True if the batch was written.
+     */
+    private static boolean importBatch(@NotNull PlayerDataProvider provider, @NotNull Map<UUID, Map<String, Object>> batch) {
+        if (provider.write(batch).isEmpty()) return true;
+
+        ConsoleManager.error("Unable to import the player data into the database. The import will be tried again on the next load.");
+        provider.removeAll();
+        return false;
+    }
+
+    /**
+     * Used to build the index of which players have redeemed
+     * each treasure location, the leaderboard and the
+     * amount of treasure each player has found.
+     * This reads the record of every player once.
+     */
+    private static void indexPlayers() {
+        DataStorage.redemptionIndex.clear();
+        DataStorage.leaderboard.clear();
+        DataStorage.foundTotals.clear();
+
+        for (Map.Entry<UUID, OrdinalSet> entry : DataStorage.getProvider().getRedeemedLocations().entrySet()) {
+            DataStorage.redemptionIndex.set(entry.getKey(), entry.getValue());
+        }
+
+        DataStorage.getProvider().forEach(playerRecord -> {
+            DataStorage.leaderboard.set(playerRecord);
+            DataStorage.foundTotals.set(playerRecord.getIdentifier(), playerRecord.getTreasureFound());
+        });
+    }
+
+    /**
+     * Used to get the amount of treasure found by every player.
+     *
+     * @return The found totals.
+     */
+    public static @NotNull FoundTotals getFoundTotals() {
+        return DataStorage.foundTotals;
+    }
+
+    /**
+     * Used to get the index of which players
+     * have redeemed each treasure location.
+     *
+     * @return The redemption index.
+     */
+    public static @NotNull RedemptionIndex getRedemptionIndex() {
+        return DataStorage.redemptionIndex;
+    }
+
+    /**
+     * Used to get where the player data is saved.
+     * The provider is chosen in the config file.
+     *
+     * @return The player data provider.
+     */
+    public static synchronized @NotNull PlayerDataProvider getProvider() {
+        if (DataStorage.provider != null) return DataStorage.provider;
+
+        DataStorage.provider = DataStorage.createProvider(DataStorage.getDataName());
+        return DataStorage.provider;
+    }
+
+    /**
+     * Used to create and load a player data provider.
+     *
+     * @param dataName The name the data is saved under.
+     * @return The player data provider.
+     */
+    private static @NotNull PlayerDataProvider createProvider(@NotNull String dataName) {
+        PlayerDataProvider provider = switch (ConfigFile.getDataStorageType()) {
+            case "sqlite" -> new SqlitePlayerDataProvider(storage.getDirectory(), dataName);
+            default -> new YamlPlayerDataProvider(storage.getDirectory(), dataName);
+        };
+
+        provider.load();
+        return provider;
+    }
+
+    /**
+     * Used to close the player data provider.
+     * Writes that were already submitted are completed first.
+     */
+    public static synchronized void close() {
+        if (DataStorage.provider == null) return;
+
+        PlayerDataProvider provider = DataStorage.provider;
+        DataStorage.provider = null;
+        StorageExecutor.run(provider::close);
+    }
+
     /**
      * Used to set the new save location without extensions.
      * This will be where player data is stored.
@@ -53,9 +254,17 @@ public class DataStorage {
      * @param fileName The name of the file.
      */
     public static void setSaveLocation(@NotNull String fileName) {
+        // Write the changes to the old save location.
+        DataStorage.flush();
+
         YamlConfiguration store = storage.createStore();
         store.set("file_name", fileName);
         store.save();
+        DataStorage.close();
+        DataStorage.pendingWriteMap.clear();
+        DataStorage.failedWriteSet.clear();
+        DataStorage.playerDataMap.clear();
+        DataStorage.indexPlayers();
     }
 
     /**
@@ -69,85 +278,586 @@ public class DataStorage {
     }
 
     /**
-     * Used to get the save configuration file.
+     * Used to get the current season.
+     * Each time a hunt is started, a new season begins.
      *
-     * @return The instance of the configuration file.
+     * @return The current season.
      */
-    public static @NotNull YamlConfiguration getSaveConfiguration() {
-        String saveLocation = DataStorage.getSaveLocation();
+    public static int getSeason() {
+        YamlConfiguration store = storage.createStore();
+        return store.getInteger("season", 0);
+    }
 
-        // Find the storage file and save the player data.
-        for (File file : storage.getFiles()) {
-            if (!file.getName().contains(saveLocation)) continue;
+    /**
+     * Used to get the oldest season that may still have player data.
+     * Seasons before this have been removed.
+     *
+     * @return The oldest season.
+     */
+    private static int getOldestSeason() {
+        YamlConfiguration store = storage.createStore();
+        return store.getInteger("oldest_season", 0);
+    }
 
-            YamlConfiguration configuration = new YamlConfiguration(file);
-            configuration.load();
-            return configuration;
+    /**
+     * Used to get the name player data is saved under
+     * for the current season.
+     *
+     * @return The data name.
+     */
+    private static @NotNull String getDataName() {
+        return DataStorage.getDataName(DataStorage.getSeason());
+    }
+
+    /**
+     * Used to get the name player data is saved under for a season.
+     * The first season uses the save location, so player data
+     * from before seasons were added belongs to it.
+     *
+     * @param season The season.
+     * @return The data name.
+     */
+    private static @NotNull String getDataName(int season) {
+        if (season <= 0) return DataStorage.getSaveLocation();
+        return DataStorage.getSaveLocation() + "_season_" + season;
+    }
+
+    /**
+     * Used to start a new season.
+     * Players start the new season with no data. The data of
+     * the previous seasons is kept, so it can still be read with
+     * {@link DataStorage#getAsync(UUID, int)}, and seasons older than
+     * the season history in the config file are removed in the background.
+     *
+     * @return The new season.
+     */
+    public static int startSeason() {
+        // Write the changes to the previous season.
+        DataStorage.flush();
+
+        int season = DataStorage.getSeason() + 1;
+        YamlConfiguration store = storage.createStore();
+        store.set("season", season);
+        store.save();
+        DataStorage.close();
+
+        // Reset the cached players.
+        DataStorage.pendingWriteMap.clear();
+        DataStorage.failedWriteSet.clear();
+        DataStorage.dirtySet.clear();
+        DataStorage.playerDataMap.replaceAll((playerUuid, playerData) -> new PlayerData(playerUuid));
+        DataStorage.redemptionIndex.clear();
+        DataStorage.leaderboard.clear();
+        DataStorage.foundTotals.clear();
+
+        DataStorage.removeOldSeasons(season);
+        return season;
+    }
+
+    /**
+     * Used to remove the player data of seasons that
+     * are older than the season history in the config file.
+     * The data is removed on the storage executor.
+     * The oldest remaining season is saved, so only the
+     * seasons that have just left the history are removed.
+     *
+     * @param season The current season.
+     */
+    private static void removeOldSeasons(int season) {
+        int history = ConfigFile.getSeasonHistory();
+        if (history < 0) return;
+
+        int oldestSeason = DataStorage.getOldestSeason();
+        int keptSeason = season - history;
+        if (oldestSeason >= keptSeason) return;
+
+        for (int oldSeason = oldestSeason; oldSeason < keptSeason; oldSeason++) {
+            String dataName = DataStorage.getDataName(oldSeason);
+            StorageExecutor.run(() -> {
+                PlayerDataProvider oldProvider = DataStorage.createProvider(dataName);
+                oldProvider.removeAll();
+                oldProvider.close();
+            });
         }
 
-        // If there are no files with the name of the save location.
+        YamlConfiguration store = storage.createStore();
+        store.set("oldest_season", keptSeason);
+        store.save();
+    }
+
+    /**
+     * Used to reload a player after their file
+     * was changed or deleted outside the plugin.
+     * If the player has changes that have not been
+     * written, the changes are kept.
+     * Files that are not the player's file in the
+     * current season are ignored.
+     *
+     * @param file The data file that changed.
+     */
+    public static void reloadFile(@NotNull File file) {
+        String name = file.getName();
+        if (!name.endsWith(".yml")) return;
+
         try {
-            // Attempt to create the file.
-            File file = new File(storage.getDirectory().getAbsolutePath() + "/" + saveLocation + ".yml");
-            file.createNewFile();
+            UUID playerUuid = UUID.fromString(name.substring(0, name.length() - 4));
 
-            YamlConfiguration configuration = new YamlConfiguration(file);
-            configuration.load();
-            return configuration;
+            // Check if the file belongs to the current season.
+            if (!(DataStorage.getProvider() instanceof YamlPlayerDataProvider yamlProvider)) return;
+            if (!yamlProvider.getFile(playerUuid).getAbsoluteFile().equals(file.getAbsoluteFile())) return;
 
-        } catch (IOException exception) {
-            ConsoleManager.error(
-                    "Unable to create file in directory. File path : "
-                            + storage.getDirectory().getAbsolutePath() + "/" + saveLocation + ".yml"
-            );
+            // Cached players with changes keep their changes.
+            if (DataStorage.dirtySet.contains(playerUuid)) return;
 
-            exception.printStackTrace();
-        }
+            // Cached players are loaded again from the file.
+            DataStorage.playerDataMap.remove(playerUuid);
+            PlayerData playerData = DataStorage.read(playerUuid);
+            DataStorage.redemptionIndex.set(playerUuid, playerData.getRedeemedLocations());
+            DataStorage.leaderboard.set(PlayerRecord.of(playerData));
+            DataStorage.foundTotals.set(playerUuid, playerData.getTreasureFound());
 
-        return new YamlConfiguration(new File(storage.getDirectory().getAbsolutePath() + "/" + saveLocation + ".yml"));
+        } catch (IllegalArgumentException ignored) {
+        }
     }
 
     /**
      * Used to put player data in to the storage medium.
+     * If the player is cached, the data is written
+     * on the next {@link DataStorage#flush()}.
      *
      * @param playerData The instance of the player data.
      */
     public static void insert(@NotNull PlayerData playerData) {
-        YamlConfiguration saveLocation = DataStorage.getSaveConfiguration();
-        saveLocation.set(playerData.getIdentifier().toString(), playerData.convert().getMap());
-        saveLocation.save();
+        DataStorage.saveAsync(playerData);
+    }
+
+    /**
+     * Used to increase the amount of a treasure a player has found.
+     * The totals and the leaderboard are only updated if the player
+     * data is the cached instance, so copies such as the data of
+     * older seasons do not change them.
+     *
+     * @param playerData The instance of the player data.
+     * @param location   The instance of the treasure location.
+     */
+    public static void increaseTreasureFound(@NotNull PlayerData playerData, @NotNull TreasureLocation location) {
+        playerData.increaseTreasureFound(location);
+
+        // Check if the player data is the cached instance.
+        UUID playerUuid = playerData.getIdentifier();
+        if (DataStorage.playerDataMap.get(playerUuid) != playerData) return;
+
+        String treasureName = location.getTreasure().getName();
+        DataStorage.foundTotals.increase(playerUuid, treasureName);
+        DataStorage.leaderboard.increase(playerUuid, treasureName);
+    }
+
+    /**
+     * Used to put player data in to the storage medium.
+     * If the player is cached, the data is written
+     * on the next {@link DataStorage#flush()}.
+     * Otherwise, it is written on the storage executor.
+     *
+     * @param playerData The instance of the player data.
+     * @return The future that completes when the data has been written or cached.
+     */
+    public static @NotNull CompletableFuture<Void> saveAsync(@NotNull PlayerData playerData) {
+        UUID playerUuid = playerData.getIdentifier();
+        DataStorage.leaderboard.setName(playerUuid, playerData.getInformation().getString("name", null));
+
+        // Check if the player is cached.
+        if (DataStorage.playerDataMap.containsKey(playerUuid)) {
+            DataStorage.playerDataMap.put(playerUuid, playerData);
+            DataStorage.dirtySet.add(playerUuid);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return DataStorage.write(List.of(playerData));
+    }
+
+    /**
+     * Used to write player data to their files.
+     * Each player's file only contains their data.
+     * The data is copied on the calling thread and
+     * written on the storage executor.
+     *
+     * @param playerDataList The player data to write.
+     * @return The future that completes when the data has been written.
+     * It completes exceptionally if any player could not be written.
+     */
+    private static @NotNull CompletableFuture<Void> write(@NotNull Collection<PlayerData> playerDataList) {
+        Map<UUID, Map<String, Object>> toWrite = new LinkedHashMap<>();
+        for (PlayerData playerData : playerDataList) {
+            Map<String, Object> data = DataStorage.copy(playerData.convert().getMap());
+
+            toWrite.put(playerData.getIdentifier(), data);
+            DataStorage.pendingWriteMap.put(playerData.getIdentifier(), data);
+        }
+
+        return DataStorage.writeData(toWrite);
+    }
+
+    /**
+     * Used to write copied player data on the storage executor.
+     * The data is only removed from the pending write map once it
+     * has been written. Cached players that could not be written
+     * are marked as changed again, and the other players are
+     * written again on the next flush.
+     *
+     * @param toWrite The map of player uuids to their copied data.
+     * @return The future that completes when the data has been written.
+     * It completes exceptionally if any player could not be written.
+     */
+    private static @NotNull CompletableFuture<Void> writeData(@NotNull Map<UUID, Map<String, Object>> toWrite) {
+        if (toWrite.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        // Write to the provider of the current save location.
+        PlayerDataProvider provider = DataStorage.getProvider();
+        return StorageExecutor.run(() -> {
+            Set<UUID> failedSet = provider.write(toWrite);
+
+            for (Map.Entry<UUID, Map<String, Object>> entry : toWrite.entrySet()) {
+                UUID playerUuid = entry.getKey();
+
+                if (!failedSet.contains(playerUuid)) {
+                    DataStorage.pendingWriteMap.remove(playerUuid, entry.getValue());
+                    continue;
+                }
+
+                // Check if newer data has replaced the data that failed.
+                if (DataStorage.pendingWriteMap.get(playerUuid) != entry.getValue()) continue;
+
+                if (DataStorage.playerDataMap.containsKey(playerUuid)) DataStorage.dirtySet.add(playerUuid);
+                else DataStorage.failedWriteSet.add(playerUuid);
+            }
+
+            if (failedSet.isEmpty()) return;
+
+            String message = "Unable to write the player data of " + failedSet.size() + " players. It will be written again on the next save.";
+            ConsoleManager.warn(message);
+            throw new CompletionException(new IOException(message));
+        });
+    }
+
+    /**
+     * Used to copy player data, so it can be written
+     * on another thread while the original is changed.
+     *
+     * @param map The map to copy.
+     * @return The copy of the map.
+     */
+    private static @NotNull Map<String, Object> copy(@NotNull Map<String, Object> map) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            copy.put(entry.getKey(), DataStorage.copyValue(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * Used to copy a value in player data.
+     *
+     * @param value The value to copy.
+     * @return The copy of the value.
+     */
+    private static @Nullable Object copyValue(@Nullable Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                copy.put(String.valueOf(entry.getKey()), DataStorage.copyValue(entry.getValue()));
+            }
+            return copy;
+        }
+
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>();
+            for (Object item : list) copy.add(DataStorage.copyValue(item));
+            return copy;
+        }
+
+        return value;
+    }
+
+    /**
+     * Used to write the changed player data in the cache to the save file.
+     * The data is copied on the calling thread and written on the storage executor.
+     *
+     * @return The future that completes when the data has been written.
+     */
+    public static @NotNull CompletableFuture<Void> flush() {
+        if (DataStorage.dirtySet.isEmpty() && DataStorage.failedWriteSet.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Write the players that were not cached and could not be written again.
+        Map<UUID, Map<String, Object>> retryMap = new LinkedHashMap<>();
+        Iterator<UUID> failedIterator = DataStorage.failedWriteSet.iterator();
+
+        while (failedIterator.hasNext()) {
+            UUID playerUuid = failedIterator.next();
+            failedIterator.remove();
+
+            // Cached players are written from the cache.
+            if (DataStorage.playerDataMap.containsKey(playerUuid)) {
+                DataStorage.dirtySet.add(playerUuid);
+                continue;
+            }
+
+            Map<String, Object> data = DataStorage.pendingWriteMap.get(playerUuid);
+            if (data != null) retryMap.put(playerUuid, data);
+        }
+
+        CompletableFuture<Void> retryFuture = DataStorage.writeData(retryMap);
+        List<PlayerData> playerDataList = new ArrayList<>();
+        Iterator<UUID> iterator = DataStorage.dirtySet.iterator();
+
+        while (iterator.hasNext()) {
+            PlayerData playerData = DataStorage.playerDataMap.get(iterator.next());
+            iterator.remove();
+            if (playerData != null) playerDataList.add(playerData);
+        }
+
+        return CompletableFuture.allOf(retryFuture, DataStorage.write(playerDataList));
+    }
+
+    /**
+     * Used to load a player's data into the cache.
+     * This is called when the player joins.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The cached player data.
+     */
+    public static @NotNull PlayerData load(@NotNull UUID playerUuid) {
+        return DataStorage.playerDataMap.computeIfAbsent(playerUuid, DataStorage::read);
+    }
+
+    /**
+     * Used to write a player's changes and remove them from the cache.
+     * This is called when the player leaves.
+     *
+     * @param playerUuid The player's uuid.
+     */
+    public static void unload(@NotNull UUID playerUuid) {
+        PlayerData playerData = DataStorage.playerDataMap.get(playerUuid);
+        if (playerData == null) return;
+
+        if (DataStorage.dirtySet.remove(playerUuid)) DataStorage.write(List.of(playerData));
+        DataStorage.playerDataMap.remove(playerUuid);
+    }
+
+    /**
+     * Used to read a player's data from their file.
+     *
+     * @param playerUuid The player uuid.
+     * @return The player data.
+     */
+    private static @NotNull PlayerData read(@NotNull UUID playerUuid) {
+        // Check if the player's data is waiting to be written.
+        Map<String, Object> data = DataStorage.pendingWriteMap.get(playerUuid);
+        if (data != null) data = DataStorage.copy(data);
+        else data = DataStorage.getProvider().read(playerUuid);
+
+        if (data == null) data = new LinkedHashMap<>();
+        return PlayerData.create(playerUuid, new MemoryConfigurationSection(data));
     }
 
     /**
      * Used to get player data using the player uuid.
+     * Online players are served from the cache.
      *
      * @param playerUuid The player uuid.
      */
     public static @NotNull PlayerData get(@NotNull UUID playerUuid) {
-        ConfigurationSection section = DataStorage.getSaveConfiguration().getSection(playerUuid.toString());
-        return PlayerData.create(playerUuid, section);
+        PlayerData playerData = DataStorage.playerDataMap.get(playerUuid);
+        if (playerData != null) return playerData;
+
+        // Check if the player is online and should be cached.
+        if (Bukkit.getPlayer(playerUuid) != null) return DataStorage.load(playerUuid);
+
+        return DataStorage.read(playerUuid);
+    }
+
+    /**
+     * Used to get the player data of a cached player.
+     * Online players are cached when they join.
+     * This never reads the player's file.
+     *
+     * @param playerUuid The player uuid.
+     * @return The cached player data.
+     * Null if the player is not cached.
+     */
+    public static @Nullable PlayerData getCached(@NotNull UUID playerUuid) {
+        return DataStorage.playerDataMap.get(playerUuid);
+    }
+
+    /**
+     * Used to get player data using the player uuid
+     * without reading the file on the calling thread.
+     *
+     * @param playerUuid The player uuid.
+     * @return The future player data.
+     */
+    public static @NotNull CompletableFuture<PlayerData> getAsync(@NotNull UUID playerUuid) {
+        PlayerData playerData = DataStorage.playerDataMap.get(playerUuid);
+        if (playerData != null) return CompletableFuture.completedFuture(playerData);
+
+        return StorageExecutor.supply(() -> DataStorage.get(playerUuid));
+    }
+
+    /**
+     * Used to get a player's data from a season
+     * without reading it on the calling thread.
+     *
+     * @param playerUuid The player uuid.
+     * @param season     The season.
+     * @return The future player data.
+     * Empty player data if the player has no data in the season.
+     */
+    public static @NotNull CompletableFuture<PlayerData> getAsync(@NotNull UUID playerUuid, int season) {
+        int currentSeason = DataStorage.getSeason();
+        if (season == currentSeason) return DataStorage.getAsync(playerUuid);
+        if (season < DataStorage.getOldestSeason() || season > currentSeason) {
+            return CompletableFuture.completedFuture(new PlayerData(playerUuid));
+        }
+
+        String dataName = DataStorage.getDataName(season);
+        return StorageExecutor.supply(() -> {
+            PlayerDataProvider seasonProvider = DataStorage.createProvider(dataName);
+            Map<String, Object> data = seasonProvider.read(playerUuid);
+            seasonProvider.close();
+
+            if (data == null) return new PlayerData(playerUuid);
+            return PlayerData.create(playerUuid, new MemoryConfigurationSection(data));
+        });
     }
 
     /**
-     * Used to get all the players in the data file.
+     * Used to get the uuids of the players with saved data.
+     *
+     * @return The list of player uuids.
+     */
+    public static @NotNull List<UUID> getPlayerUuids() {
+        return DataStorage.getProvider().getPlayerUuids();
+    }
+
+    /**
+     * Used to get all the players in the data directory.
+     * Cached players with changes that have
+     * not been written are also included.
      */
     public static @NotNull List<PlayerData> getAll() {
         List<PlayerData> data = new ArrayList<>();
+        Set<UUID> playerUuidSet = new HashSet<>();
+
+        for (UUID playerUuid : DataStorage.getPlayerUuids()) {
+            PlayerData playerData = DataStorage.playerDataMap.get(playerUuid);
 
-        for (String key : DataStorage.getSaveConfiguration().getKeys()) {
-            data.add(DataStorage.get(UUID.fromString(key)));
+            data.add(playerData == null ? DataStorage.read(playerUuid) : playerData);
+            playerUuidSet.add(playerUuid);
+        }
+
+        for (PlayerData playerData : DataStorage.playerDataMap.values()) {
+            if (playerUuidSet.contains(playerData.getIdentifier())) continue;
+            data.add(playerData);
         }
 
         return data;
     }
 
+    /**
+     * Used to loop though the record of every player with data.
+     * Cached players and players waiting to be written are
+     * included with their latest changes, and the other players
+     * are read from the provider one at a time.
+     * This should only be called on the main thread,
+     * as the cached players are copied while looping.
+     *
+     * @param consumer Called with each player's record.
+     */
+    public static void forEach(@NotNull Consumer<PlayerRecord> consumer) {
+        DataStorage.forEach(DataStorage.getLatestRecords(), consumer);
+    }
+
+    /**
+     * Used to loop though the record of every player
+     * with data on the storage executor.
+     * Cached players are copied on the main thread,
+     * so this can be called from any thread.
+     *
+     * @param consumer Called with each player's record on the storage executor.
+     * @return The future that completes when every player has been looped though.
+     */
+    public static @NotNull CompletableFuture<Void> forEachAsync(@NotNull Consumer<PlayerRecord> consumer) {
+        CompletableFuture<Map<UUID, PlayerRecord>> latestFuture;
+        try {
+            latestFuture = CompletableFuture.supplyAsync(DataStorage::getLatestRecords, StorageExecutor.getMainThread());
+        } catch (IllegalStateException | IllegalArgumentException disabled) {
+            // The plugin is being disabled.
+            return CompletableFuture.failedFuture(disabled);
+        }
+
+        return latestFuture.thenCompose(latestMap -> StorageExecutor.run(() -> DataStorage.forEach(latestMap, consumer)));
+    }
+
+    /**
+     * Used to loop though the record of every player with data.
+     *
+     * @param latestMap The records of the players with changes
+     *                  that may not have been written yet.
+     * @param consumer  Called with each player's record.
+     */
+    private static void forEach(@NotNull Map<UUID, PlayerRecord> latestMap, @NotNull Consumer<PlayerRecord> consumer) {
+        latestMap.values().forEach(consumer);
+
+        DataStorage.getProvider().forEach(record -> {
+            if (!latestMap.containsKey(record.getIdentifier())) consumer.accept(record);
+        });
+    }
+
+    /**
+     * Used to get the records of the players with changes
+     * that may not have been written to the provider yet.
+     * This should only be called on the main thread,
+     * as cached players are changed on the main thread.
+     *
+     * @return The map of player uuids to their records.
+     */
+    private static @NotNull Map<UUID, PlayerRecord> getLatestRecords() {
+        Map<UUID, PlayerRecord> latestMap = new HashMap<>();
+
+        for (Map.Entry<UUID, Map<String, Object>> entry : DataStorage.pendingWriteMap.entrySet()) {
+            latestMap.put(entry.getKey(), PlayerRecord.of(entry.getKey(), entry.getValue()));
+        }
+
+        for (PlayerData playerData : DataStorage.playerDataMap.values()) {
+            latestMap.put(playerData.getIdentifier(), PlayerRecord.of(playerData));
+        }
+
+        return latestMap;
+    }
+
     /**
      * Used to get the current instance of the leaderboard.
+     * The leaderboard is kept up to date as treasure is found.
      *
      * @return The current instance of the leaderboard.
      */
     public static @NotNull Leaderboard getLeaderboard() {
-        return new Leaderboard(DataStorage.getAll());
+        return DataStorage.leaderboard;
+    }
+
+    /**
+     * Used to get the leaderboard once it can be
+     * read without waiting for a ranking to be created.
+     *
+     * @param treasureName The name of the treasure that will be read.
+     *                     Null if only the total, daily and weekly
+     *                     leaderboards will be read, as they are always ready.
+     * @return The future leaderboard.
+     */
+    public static @NotNull CompletableFuture<Leaderboard> getLeaderboardAsync(@Nullable String treasureName) {
+        if (treasureName == null) return CompletableFuture.completedFuture(DataStorage.leaderboard);
+        return DataStorage.leaderboard.prepare(treasureName).thenApply(ignored -> DataStorage.leaderboard);
     }
 
     /**
@@ -156,12 +866,7 @@ public class DataStorage {
      * @return Amount of treasure found in total.
      */
     public static int getTotalTreasureFound() {
-        int total = 0;
-        for (PlayerData playerData : DataStorage.getAll()) {
-            total += playerData.getAmountFound();
-        }
-
-        return total;
+        return DataStorage.foundTotals.getTotal();
     }
 
     /**
@@ -172,22 +877,29 @@ public class DataStorage {
      * @return The amount of treasure found.
      */
     public static int getTotalTreasureFound(@NotNull String treasureName) {
-        int total = 0;
-        for (PlayerData playerData : DataStorage.getAll()) {
-            total += playerData.getTreasureFound(treasureName);
-        }
-
-        return total;
+        return DataStorage.foundTotals.getTotal(treasureName);
     }
 
     /**
      * Used to remove all the player data.
+     * The cached players are reset straight away, and the
+     * saved data is removed on the storage executor after
+     * the writes that were already submitted.
+     *
+     * @return The future that completes when the data has been removed.
      */
-    public static void removeAll() {
-        YamlConfiguration configuration = DataStorage.getSaveConfiguration();
-        configuration.set(null);
-        configuration.save();
-
+    public static @NotNull CompletableFuture<Void> removeAll() {
+        DataStorage.pendingWriteMap.clear();
+        DataStorage.failedWriteSet.clear();
+
+        // Reset the cached players before any of their changes are written again.
+        DataStorage.dirtySet.clear();
+        DataStorage.playerDataMap.replaceAll((playerUuid, playerData) -> new PlayerData(playerUuid));
+        DataStorage.redemptionIndex.clear();
+        DataStorage.leaderboard.clear();
+        DataStorage.foundTotals.clear();
+
+        return StorageExecutor.run(DataStorage.getProvider()::removeAll);
     }
 
     /**
@@ -197,27 +909,83 @@ public class DataStorage {
      * @return The amount of times it has been redeemed.
      */
     public static int getAmountRedeemed(TreasureLocation treasureLocation) {
-        int amountRedeemed = 0;
-
-        for (PlayerData playerData : DataStorage.getAll()) {
-            if (playerData.hasRedeemed(treasureLocation)) amountRedeemed++;
-        }
-
-        return amountRedeemed;
+        return DataStorage.redemptionIndex.getAmount(treasureLocation.getOrdinal());
     }
 
     /**
-     * Loops though every player and removes the treasure
-     * location if they have it in there info section.
+     * Used to remove the treasure location from the
+     * redeemed locations of the players that have redeemed it.
+     * Only these players are loaded and written.
      *
      * @param treasureLocation The instance of the treasure location.
      */
     public static void resetLocationData(TreasureLocation treasureLocation) {
-        for (PlayerData playerData : DataStorage.getAll()) {
-            if (!playerData.hasRedeemed(treasureLocation)) continue;
+        DataStorage.resetLocationData(treasureLocation.getOrdinal());
+    }
 
-            playerData.removeRedeemedLocation(treasureLocation);
-            playerData.save();
+    /**
+     * Used to remove a treasure location from the players
+     * that have redeemed it, using the location's ordinal.
+     * This is also called when a location is removed,
+     * so its ordinal is not redeemed by anyone.
+     * Players that are not cached are read and
+     * written on the storage executor.
+     *
+     * @param ordinal The location's ordinal.
+     */
+    public static void resetLocationData(int ordinal) {
+        List<UUID> uncachedList = new ArrayList<>();
+
+        for (UUID playerUuid : DataStorage.redemptionIndex.getPlayers(ordinal)) {
+            PlayerData playerData = DataStorage.playerDataMap.get(playerUuid);
+            if (playerData == null) {
+                uncachedList.add(playerUuid);
+                continue;
+            }
+
+            // Cached players are written on the next flush.
+            playerData.removeRedeemedLocation(ordinal);
+            DataStorage.insert(playerData);
         }
+
+        if (uncachedList.isEmpty()) return;
+
+        // Read and write the other players on the storage executor.
+        StorageExecutor.run(() -> {
+            List<PlayerData> changedList = new ArrayList<>();
+
+            for (UUID playerUuid : uncachedList) {
+
+                // Check if the player was cached since.
+                // The cached data is changed on the main thread.
+                if (DataStorage.playerDataMap.containsKey(playerUuid)) {
+                    StorageExecutor.getMainThread().execute(() -> {
+                        PlayerData playerData = DataStorage.getCached(playerUuid);
+                        if (playerData == null) return;
+
+                        playerData.removeRedeemedLocation(ordinal);
+                        DataStorage.insert(playerData);
+                    });
+                    continue;
+                }
+
+                PlayerData playerData = DataStorage.read(playerUuid);
+                playerData.removeRedeemedLocation(ordinal);
+                changedList.add(playerData);
+            }
+
+            DataStorage.write(changedList);
+        });
+    }
+
+    /**
+     * Used to get the storage medium.
+     * If the return value is changed, functionality
+     * will need to also change elsewhere in the plugin.
+     *
+     * @return The data directory.
+     */
+    public static @NotNull ConfigurationDirectory getMedium() {
+        return DataStorage.storage;
     }
 }
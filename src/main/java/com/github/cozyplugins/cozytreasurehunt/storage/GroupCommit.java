@@ -0,0 +1,314 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage;
+
+import com.github.cozyplugins.cozylibrary.ConsoleManager;
+import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Represents the crash safe write path of the storage files.
+ * <p>
+ * Files are written to a temporary file, forced to the disk
+ * and then renamed over the old file, so a crash while writing
+ * never leaves a file half written.
+ * </p>
+ * <li>
+ * Writes and journal syncs that are submitted within a short window
+ * are committed together. If the same file is written more than
+ * once in the window, only the latest contents are written, so
+ * the file is forced to the disk once.
+ * </li>
+ */
+public class GroupCommit {
+
+    /**
+     * The amount of milliseconds to wait after the first
+     * write of a group before committing the group.
+     */
+    private static final long WINDOW_MILLIS = 20L;
+
+    /**
+     * The pending contents of each file and
+     * the futures waiting for them to be written.
+     */
+    private static @NotNull Map<File, PendingWrite> pendingMap = new LinkedHashMap<>();
+
+    /**
+     * The pending syncs, for example forcing a
+     * journal's appended entries to the disk.
+     */
+    private static @NotNull Set<Runnable> syncSet = new LinkedHashSet<>();
+
+    /**
+     * Held while committing, so only one group is committed at a time.
+     */
+    private static final @NotNull Object commitLock = new Object();
+
+    private static @Nullable ScheduledExecutorService scheduler;
+    private static boolean isScheduled = false;
+
+    /**
+     * Represents the latest contents of a file waiting to be written.
+     *
+     * @param bytes      The contents of the file.
+     * @param futureList The futures to complete once it is written.
+     */
+    private record PendingWrite(@NotNull byte[] bytes, @NotNull List<CompletableFuture<Void>> futureList) {
+    }
+
+    /**
+     * Used to submit a file to be written in the next group.
+     *
+     * @param file  The file to write.
+     * @param bytes The contents of the file.
+     * @return The future that completes when the file has been written.
+     */
+    public static @NotNull CompletableFuture<Void> write(@NotNull File file, @NotNull byte[] bytes) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        synchronized (GroupCommit.class) {
+            PendingWrite previous = GroupCommit.pendingMap.get(file);
+            List<CompletableFuture<Void>> futureList = previous == null ? new ArrayList<>() : previous.futureList();
+            futureList.add(future);
+            GroupCommit.pendingMap.put(file, new PendingWrite(bytes, futureList));
+        }
+
+        GroupCommit.schedule();
+        return future;
+    }
+
+    /**
+     * Used to submit a sync to run in the next group.
+     * The same instance is only run once per group.
+     *
+     * @param syncTask The sync to run.
+     */
+    public static void sync(@NotNull Runnable syncTask) {
+        synchronized (GroupCommit.class) {
+            GroupCommit.syncSet.add(syncTask);
+        }
+
+        GroupCommit.schedule();
+    }
+
+    /**
+     * Used to schedule the next group to be committed.
+     * If the plugin is disabled, the group is committed immediately.
+     */
+    private static void schedule() {
+        synchronized (GroupCommit.class) {
+            if (GroupCommit.isScheduled) return;
+
+            ScheduledExecutorService scheduler = GroupCommit.getScheduler();
+            if (scheduler != null) {
+                try {
+                    scheduler.schedule(GroupCommit::commit, GroupCommit.WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+                    GroupCommit.isScheduled = true;
+                    return;
+                } catch (RejectedExecutionException ignored) {
+                }
+            }
+        }
+
+        GroupCommit.commit();
+    }
+
+    /**
+     * Used to get the scheduler that commits each group.
+     *
+     * @return The scheduler.
+     * Null if it has been shut down.
+     */
+    private static synchronized @Nullable ScheduledExecutorService getScheduler() {
+        if (GroupCommit.scheduler == null) {
+            GroupCommit.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "CozyTreasureHunt Group Commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return GroupCommit.scheduler.isShutdown() ? null : GroupCommit.scheduler;
+    }
+
+    /**
+     * Used to write the pending files and run the
+     * pending syncs on the calling thread.
+     */
+    public static void commit() {
+        synchronized (GroupCommit.commitLock) {
+            Map<File, PendingWrite> toWrite;
+            Set<Runnable> toSync;
+
+            synchronized (GroupCommit.class) {
+                toWrite = GroupCommit.pendingMap;
+                toSync = GroupCommit.syncSet;
+                GroupCommit.pendingMap = new LinkedHashMap<>();
+                GroupCommit.syncSet = new LinkedHashSet<>();
+                GroupCommit.isScheduled = false;
+            }
+
+            for (Map.Entry<File, PendingWrite> entry : toWrite.entrySet()) {
+                try {
+                    GroupCommit.writeAtomically(entry.getKey(), entry.getValue().bytes());
+                    entry.getValue().futureList().forEach(future -> future.complete(null));
+
+                } catch (IOException exception) {
+                    ConsoleManager.error("Unable to write the file " + entry.getKey().getAbsolutePath());
+                    exception.printStackTrace();
+                    entry.getValue().futureList().forEach(future -> future.completeExceptionally(exception));
+                }
+            }
+
+            for (Runnable syncTask : toSync) {
+                syncTask.run();
+            }
+        }
+    }
+
+    /**
+     * Used to commit the pending group and stop the scheduler.
+     * Writes submitted after this are committed immediately.
+     */
+    public static void shutdown() {
+        synchronized (GroupCommit.class) {
+            if (GroupCommit.scheduler != null) GroupCommit.scheduler.shutdown();
+        }
+
+        GroupCommit.commit();
+    }
+
+    /**
+     * Used to write a file without leaving it half written.
+     * The contents are written to a temporary file, forced to the disk
+     * and then renamed over the file.
+     *
+     * @param file  The file to write.
+     * @param bytes The contents of the file.
+     * @throws IOException If the file could not be written.
+     */
+    public static void writeAtomically(@NotNull File file, @NotNull byte[] bytes) throws IOException {
+        File temporary = GroupCommit.writeTemporary(file, bytes);
+        GroupCommit.replace(temporary, file);
+        GroupCommit.syncDirectory(file);
+    }
+
+    /**
+     * Used to write the contents of a file to a temporary file
+     * next to it, and force the temporary file to the disk.
+     * The file is not changed until {@link GroupCommit#replace(File, File)} is called.
+     *
+     * @param file  The file that will be replaced.
+     * @param bytes The contents of the file.
+     * @return The temporary file.
+     * @throws IOException If the temporary file could not be written.
+     */
+    public static @NotNull File writeTemporary(@NotNull File file, @NotNull byte[] bytes) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create the directory " + directory.getAbsolutePath());
+        }
+
+        File temporary = new File(directory, file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+
+        return temporary;
+    }
+
+    /**
+     * Used to rename a temporary file over the file it replaces.
+     *
+     * @param temporary The temporary file from {@link GroupCommit#writeTemporary(File, byte[])}.
+     * @param file      The file to replace.
+     * @throws IOException If the file could not be replaced.
+     */
+    public static void replace(@NotNull File temporary, @NotNull File file) throws IOException {
+        Files.move(temporary.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+        );
+        Storage.markWritten(file);
+    }
+
+    /**
+     * Used to force the rename of a file to the disk.
+     * This is not supported on every platform.
+     *
+     * @param file The file that was renamed.
+     */
+    public static void syncDirectory(@NotNull File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Used to save a configuration to a file without leaving it half written.
+     *
+     * @param configuration The configuration to save.
+     * @param file          The file to save it to.
+     */
+    public static void save(@NotNull ConfigurationSection configuration, @NotNull File file) {
+        try {
+            GroupCommit.writeAtomically(file, GroupCommit.toBytes(configuration));
+        } catch (IOException exception) {
+            ConsoleManager.error("Unable to save the file " + file.getAbsolutePath());
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Used to convert a configuration to the contents of a yaml file.
+     *
+     * @param configuration The configuration.
+     * @return The contents of the file.
+     */
+    public static @NotNull byte[] toBytes(@NotNull ConfigurationSection configuration) {
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        options.setIndent(2);
+
+        Map<String, Object> map = configuration.getMap();
+        if (map.isEmpty()) return new byte[0];
+
+        return new Yaml(options).dump(map).getBytes(StandardCharsets.UTF_8);
+    }
+}
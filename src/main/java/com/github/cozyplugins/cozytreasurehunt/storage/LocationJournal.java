@@ -0,0 +1,295 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage;
+
+import com.github.cozyplugins.cozylibrary.ConsoleManager;
+import com.github.cozyplugins.cozytreasurehunt.TreasureLocation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the append only journal of location changes.
+ * <p>
+ * Every insert, removal and spawn state change is appended
+ * as one line, so the cost of a change does not depend on
+ * how many locations exist. When the pending changes are
+ * written to the location files, the entries they contain
+ * are removed from the start of the journal.
+ * </p>
+ * <p>
+ * Appended entries are forced to the disk by the next
+ * {@link GroupCommit}, so changes made close together
+ * share a single sync.
+ * </p>
+ * <li>insert [ordinal] [treasure identifier] [location identifier]</li>
+ * <li>remove [location identifier]</li>
+ * <li>spawn [ordinal] [1 or 0]</li>
+ */
+public class LocationJournal {
+
+    private final @NotNull File file;
+    private final @NotNull Runnable syncTask;
+
+    /**
+     * Held while the journal is being compacted, so only one
+     * compaction runs at a time without blocking appends.
+     */
+    private final @NotNull Object truncateLock = new Object();
+    private @Nullable FileOutputStream stream;
+    private long position;
+
+    /**
+     * Used to create a location journal.
+     *
+     * @param file The journal file.
+     */
+    public LocationJournal(@NotNull File file) {
+        this.file = file;
+        this.syncTask = this::sync;
+        this.stream = null;
+        this.position = 0;
+    }
+
+    /**
+     * Used to read every entry in the journal.
+     * An entry that was only partly written will
+     * be returned as it is, and should be ignored.
+     *
+     * @return The list of entries.
+     */
+    public synchronized @NotNull List<String> read() {
+        if (!this.file.exists()) return new ArrayList<>();
+
+        try {
+            return Files.readAllLines(this.file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException exception) {
+            ConsoleManager.error("Unable to read the location journal " + this.file.getAbsolutePath());
+            exception.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Used to open the journal so entries can be appended.
+     */
+    public synchronized void open() {
+        if (this.stream != null) return;
+
+        try {
+            this.stream = new FileOutputStream(this.file, true);
+            this.position = this.file.length();
+        } catch (IOException exception) {
+            ConsoleManager.error("Unable to open the location journal " + this.file.getAbsolutePath());
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Used to close the journal.
+     */
+    public synchronized void close() {
+        if (this.stream == null) return;
+
+        try {
+            this.stream.getFD().sync();
+            this.stream.close();
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+
+        this.stream = null;
+    }
+
+    /**
+     * Used to close and delete the journal.
+     */
+    public synchronized void delete() {
+        this.close();
+        if (this.file.exists() && !this.file.delete()) {
+            ConsoleManager.warn("Unable to delete the location journal " + this.file.getAbsolutePath());
+        }
+        this.position = 0;
+    }
+
+    /**
+     * Used to get the position after the last appended entry.
+     *
+     * @return The position in bytes.
+     */
+    public synchronized long getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Used to append an entry to the journal.
+     *
+     * @param entry The entry without a line separator.
+     */
+    public void append(@NotNull String entry) {
+        byte[] bytes = (entry + "\n").getBytes(StandardCharsets.UTF_8);
+
+        synchronized (this) {
+            if (this.stream == null) return;
+
+            try {
+                this.stream.write(bytes);
+                this.position += bytes.length;
+            } catch (IOException exception) {
+                ConsoleManager.error("Unable to append to the location journal " + this.file.getAbsolutePath());
+                exception.printStackTrace();
+                return;
+            }
+        }
+
+        // The sync is requested outside the lock, as the commit also takes the lock.
+        GroupCommit.sync(this.syncTask);
+    }
+
+    /**
+     * Used to force the appended entries to the disk.
+     */
+    public synchronized void sync() {
+        if (this.stream == null) return;
+
+        try {
+            this.stream.getFD().sync();
+        } catch (IOException exception) {
+            ConsoleManager.error("Unable to sync the location journal " + this.file.getAbsolutePath());
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Used to append that a location was inserted.
+     *
+     * @param location The instance of the treasure location.
+     */
+    public void appendInsert(@NotNull TreasureLocation location) {
+        this.append("insert\t" + location.getOrdinal()
+                + "\t" + location.getTreasure().getIdentifier()
+                + "\t" + location.getIdentifier());
+    }
+
+    /**
+     * Used to append that a location was removed.
+     *
+     * @param identifier The location's identifier.
+     */
+    public void appendRemove(@NotNull String identifier) {
+        this.append("remove\t" + identifier);
+    }
+
+    /**
+     * Used to append that a location's spawn state changed.
+     *
+     * @param ordinal   The location's ordinal.
+     * @param isSpawned True if the location is spawned.
+     */
+    public void appendSpawn(int ordinal, boolean isSpawned) {
+        this.append("spawn\t" + ordinal + "\t" + (isSpawned ? 1 : 0));
+    }
+
+    /**
+     * Used to remove the entries before a position.
+     * This is called once the entries have been
+     * written to the location files.
+     * <p>
+     * The remaining entries are written and synced to a new file
+     * without holding the journal's lock, so appending is only
+     * blocked while the new file is renamed over the journal.
+     * </p>
+     *
+     * @param position The position from {@link LocationJournal#getPosition()}.
+     */
+    public void truncate(long position) {
+        if (position <= 0) return;
+
+        synchronized (this.truncateLock) {
+            try {
+                // Copy the entries after the position.
+                long end;
+                byte[] tail;
+                synchronized (this) {
+                    if (this.stream == null) return;
+                    end = this.position;
+                    tail = this.readRange(position, end);
+                }
+
+                File temporary = GroupCommit.writeTemporary(this.file, tail);
+
+                synchronized (this) {
+                    // Check if the journal was closed or deleted while compacting.
+                    if (this.stream == null || this.position < end) {
+                        Files.deleteIfExists(temporary.toPath());
+                        return;
+                    }
+
+                    // Copy the entries appended while compacting.
+                    // They may have already been synced in the old journal.
+                    byte[] appended = this.readRange(end, this.position);
+                    if (appended.length > 0) {
+                        try (FileOutputStream output = new FileOutputStream(temporary, true)) {
+                            output.write(appended);
+                            output.getFD().sync();
+                        }
+                    }
+
+                    this.stream.close();
+                    this.stream = null;
+                    GroupCommit.replace(temporary, this.file);
+                    this.open();
+                }
+
+                GroupCommit.syncDirectory(this.file);
+
+            } catch (IOException exception) {
+                ConsoleManager.error("Unable to compact the location journal " + this.file.getAbsolutePath());
+                exception.printStackTrace();
+
+                // Keep appending to the journal that was not compacted.
+                this.open();
+            }
+        }
+    }
+
+    /**
+     * Used to read the bytes of the journal between two positions.
+     *
+     * @param start The start position.
+     * @param end   The end position.
+     * @return The bytes between the positions.
+     * @throws IOException If the journal could not be read.
+     */
+    private @NotNull byte[] readRange(long start, long end) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(this.file, "r")) {
+            long from = Math.min(start, input.length());
+            long to = Math.min(end, input.length());
+            byte[] bytes = new byte[(int) Math.max(0, to - from)];
+            input.seek(from);
+            input.readFully(bytes);
+            return bytes;
+        }
+    }
+}
@@ -19,22 +19,31 @@
 package com.github.cozyplugins.cozytreasurehunt.storage;
 
 import com.github.cozyplugins.cozylibrary.ConsoleManager;
+import com.github.cozyplugins.cozylibrary.CozyPlugin;
+import com.github.cozyplugins.cozylibrary.configuration.ConfigurationDirectory;
 import com.github.cozyplugins.cozylibrary.location.Region3D;
+import com.github.cozyplugins.cozytreasurehunt.BlockKey;
+import com.github.cozyplugins.cozytreasurehunt.Treasure;
 import com.github.cozyplugins.cozytreasurehunt.TreasureLocation;
 import com.github.cozyplugins.cozytreasurehunt.storage.configuration.LocationConfigurationDirectory;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.ChunkIndex;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.TreasureCounter;
 import com.github.smuddgge.squishyconfiguration.implementation.YamlConfiguration;
 import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
+import com.github.smuddgge.squishyconfiguration.memory.MemoryConfigurationSection;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.UUID;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents the treasure location storage.
@@ -50,30 +59,798 @@ public final class LocationStorage {
 
     private static final LocationConfigurationDirectory storage = new LocationConfigurationDirectory();
 
+    /**
+     * The pending changes to the location files.
+     * These are written in batches by {@link LocationStorage#flush()}.
+     */
+    private static final WriteBehindQueue queue = new WriteBehindQueue(LocationStorage.storage);
+
+    /**
+     * The in-memory registry of treasure locations.
+     * This is loaded once from the configuration directory
+     * and is used to serve every read. The configuration
+     * directory is only used to persist changes.
+     */
+    private static final @NotNull Map<BlockKey, TreasureLocation> locationMap = new HashMap<>();
+
+    /**
+     * The chunks that contain treasure locations, per world uuid.
+     * Used to reject clicks in chunks without treasure
+     * without building the location's identifier.
+     */
+    private static final @NotNull Map<UUID, ChunkIndex> chunkIndexMap = new HashMap<>();
+
+    /**
+     * The treasure locations indexed by their ordinal.
+     * Ordinals of removed locations are left empty and are not reused,
+     * as the next ordinal is saved to the {@link LocationStorage#ordinalFile}.
+     */
+    private static final @NotNull List<TreasureLocation> ordinalList = new ArrayList<>();
+
+    /**
+     * The data of locations in worlds that are not loaded,
+     * keyed by the world's name and then the location's identifier.
+     * These are registered when their world loads. Until then,
+     * their ordinals and spawn state are kept.
+     */
+    private static final @NotNull Map<String, Map<String, Map<String, Object>>> unloadedMap = new HashMap<>();
+
+    /**
+     * The ordinals of the saved locations keyed by their identifier,
+     * including the locations in worlds that are not loaded.
+     * Used to convert redeemed location identifiers saved by
+     * older versions, which can happen on any thread.
+     */
+    private static final @NotNull Map<String, Integer> identifierOrdinalMap = new ConcurrentHashMap<>();
+
+    /**
+     * The amount of locations and spawned locations
+     * of each treasure type, keyed by the treasure's identifier.
+     */
+    private static final @NotNull Map<UUID, TreasureCounter> counterMap = new ConcurrentHashMap<>();
+
+    /**
+     * Which treasure locations are spawned.
+     * This is kept separate from the location files.
+     */
+    private static final @NotNull SpawnState spawnState = new SpawnState(
+            new File(CozyPlugin.getPlugin().getDataFolder(), "spawn_state.dat")
+    );
+
+    /**
+     * The journal of location changes that have not been
+     * written to the location files yet.
+     */
+    private static final @NotNull LocationJournal journal = new LocationJournal(
+            new File(CozyPlugin.getPlugin().getDataFolder(), "locations.journal")
+    );
+
+    /**
+     * Held while changing locations, so the pending changes
+     * and the journal position can be taken together.
+     */
+    private static final @NotNull Object mutationLock = new Object();
+
+    /**
+     * Held while writing the pending changes, so
+     * only one thread writes at a time.
+     */
+    private static final @NotNull Object flushLock = new Object();
+
+    /**
+     * The file the next ordinal is saved to. It is written before
+     * the location files, so after a restart the ordinals of removed
+     * locations are not given to new locations. Players that still
+     * have a removed ordinal as redeemed are then not affected.
+     */
+    private static final @NotNull File ordinalFile = new File(CozyPlugin.getPlugin().getDataFolder(), "locations.ordinal");
+
+    /**
+     * The ordinal that will be given to the next new location.
+     */
+    private static int nextOrdinal = 0;
+
+    /**
+     * The next ordinal that was last saved to the ordinal file.
+     */
+    private static int savedNextOrdinal = 0;
+
+    /**
+     * True if location changes are appended to the journal.
+     */
+    private static boolean isJournaled = false;
+
     /**
      * Used to load the location data.
+     * This will write any pending changes, reload the configuration
+     * directory and rebuild the in-memory registry of treasure locations.
+     * Changes left in the journal are then replayed.
      */
     public static void load() {
+        synchronized (LocationStorage.flushLock) {
+            LocationStorage.flush();
+            LocationStorage.journal.close();
+            LocationStorage.isJournaled = false;
+            LocationStorage.loadSnapshot();
+            LocationStorage.replay();
+            LocationStorage.recount();
+        }
+    }
+
+    /**
+     * Used to load the location files and the spawn state.
+     */
+    private static void loadSnapshot() {
         LocationStorage.storage.reload();
+        Storage.index(LocationStorage.storage);
+        LocationStorage.locationMap.clear();
+        LocationStorage.chunkIndexMap.clear();
+        LocationStorage.ordinalList.clear();
+        LocationStorage.counterMap.clear();
+        LocationStorage.unloadedMap.clear();
+        LocationStorage.identifierOrdinalMap.clear();
+        LocationStorage.savedNextOrdinal = LocationStorage.readNextOrdinal();
+        LocationStorage.nextOrdinal = LocationStorage.savedNextOrdinal;
+        boolean containsInvalidLocations = false;
+
+        // Check if the spawn state should be migrated from the location files.
+        boolean migrateSpawnState = !LocationStorage.spawnState.exists();
+        LocationStorage.spawnState.load();
+        if (migrateSpawnState) LocationStorage.spawnState.clear();
+
+        // Locations of the same treasure type share the treasure instance.
+        Map<UUID, Treasure> treasureMap = new HashMap<>();
+        List<TreasureLocation> unnumberedList = new ArrayList<>();
+        List<TreasureLocation> legacySpawnedList = new ArrayList<>();
+
+        for (String key : LocationStorage.storage.getKeys()) {
+            ConfigurationSection section = LocationStorage.storage.getSection(key);
+
+            // Ordinals of locations that cannot be loaded are still reserved.
+            int ordinal = section.getInteger("ordinal", -1);
+            LocationStorage.nextOrdinal = Math.max(LocationStorage.nextOrdinal, ordinal + 1);
+
+            // Check if the location's world is not loaded yet.
+            if (LocationStorage.keepUnloaded(key, section)) continue;
+
+            TreasureLocation location = TreasureLocation.create(section,
+                    identifier -> treasureMap.computeIfAbsent(identifier, TreasureStorage::get)
+            );
+
+            // Check if the location is null.
+            if (location == null) {
+                containsInvalidLocations = true;
+                continue;
+            }
+
+            if (migrateSpawnState && section.getBoolean("is_spawned", false)) legacySpawnedList.add(location);
+
+            // Check if the location needs a new ordinal.
+            if (ordinal < 0 || LocationStorage.getByOrdinal(ordinal) != null) {
+                unnumberedList.add(location);
+                continue;
+            }
+
+            LocationStorage.register(location);
+        }
+
+        // Give ordinals to locations from older versions.
+        for (TreasureLocation location : unnumberedList) {
+            location.setOrdinal(-1);
+            LocationStorage.insert(location);
+        }
+
+        // Remove spawn state for locations that no longer exist.
+        // Locations in worlds that are not loaded keep their spawn state.
+        BitSet knownOrdinals = new BitSet();
+        for (TreasureLocation location : LocationStorage.locationMap.values()) {
+            knownOrdinals.set(location.getOrdinal());
+        }
+        for (Map<String, Map<String, Object>> keyMap : LocationStorage.unloadedMap.values()) {
+            for (Map<String, Object> data : keyMap.values()) {
+                if (data.get("ordinal") instanceof Number ordinal && ordinal.intValue() >= 0) {
+                    knownOrdinals.set(ordinal.intValue());
+                }
+            }
+        }
+        LocationStorage.spawnState.retain(knownOrdinals);
+
+        for (TreasureLocation location : legacySpawnedList) {
+            LocationStorage.spawnState.set(location.getOrdinal(), true);
+        }
+
+        // Check if there were invalid locations.
+        if (containsInvalidLocations) {
+            ConsoleManager.warn(
+                    "When loading treasure locations, there were locations that could " +
+                            "not be loaded due to the treasure type no longer existing."
+            );
+        }
+    }
+
+    /**
+     * Used to keep a location in a world that is not loaded,
+     * so it can be registered when the world loads.
+     *
+     * @param key     The location's identifier.
+     * @param section The location's data.
+     * @return True if the world is not loaded and the location was kept.
+     */
+    private static boolean keepUnloaded(@NotNull String key, @NotNull ConfigurationSection section) {
+        String worldName = section.getString("location.world", null);
+        if (worldName == null || Bukkit.getWorld(worldName) != null) return false;
+
+        LocationStorage.unloadedMap.computeIfAbsent(worldName, name -> new HashMap<>())
+                .put(key, new LinkedHashMap<>(section.getMap()));
+
+        int ordinal = section.getInteger("ordinal", -1);
+        if (ordinal >= 0) LocationStorage.identifierOrdinalMap.put(key, ordinal);
+        return true;
+    }
+
+    /**
+     * Used to remove a location in a world that is not loaded.
+     *
+     * @param key The location's identifier.
+     * @return The location's ordinal.
+     * -1 if there was no location or it did not have an ordinal.
+     */
+    private static int removeUnloaded(@NotNull String key) {
+        String[] parts = BlockKey.split(key);
+        if (parts == null) return -1;
+
+        Map<String, Map<String, Object>> keyMap = LocationStorage.unloadedMap.get(parts[0]);
+        if (keyMap == null) return -1;
+
+        Map<String, Object> data = keyMap.remove(key);
+        if (keyMap.isEmpty()) LocationStorage.unloadedMap.remove(parts[0]);
+        if (data == null) return -1;
+
+        LocationStorage.identifierOrdinalMap.remove(key);
+        if (data.get("ordinal") instanceof Number ordinal) return ordinal.intValue();
+        return -1;
+    }
+
+    /**
+     * Used to register the locations of a world
+     * that was not loaded when the locations were loaded.
+     * This is called when a world loads.
+     *
+     * @param world The world that loaded.
+     */
+    public static void loadWorld(@NotNull World world) {
+        synchronized (LocationStorage.mutationLock) {
+            Map<String, Map<String, Object>> keyMap = LocationStorage.unloadedMap.remove(world.getName());
+            if (keyMap == null) return;
+
+            Map<UUID, Treasure> treasureMap = new HashMap<>();
+            for (Map<String, Object> data : keyMap.values()) {
+                TreasureLocation location = TreasureLocation.create(new MemoryConfigurationSection(data),
+                        identifier -> treasureMap.computeIfAbsent(identifier, TreasureStorage::get)
+                );
+                if (location == null) continue;
+
+                // Check if the location needs a new ordinal.
+                int ordinal = location.getOrdinal();
+                if (ordinal < 0 || LocationStorage.getByOrdinal(ordinal) != null) {
+                    location.setOrdinal(-1);
+                    LocationStorage.insert(location);
+                    continue;
+                }
+
+                LocationStorage.register(location);
+            }
+        }
+    }
+
+    /**
+     * Used to replay the changes left in the journal
+     * on top of the location files. The replayed changes
+     * are then written and the journal is compacted.
+     * If journaling is disabled the journal is deleted.
+     */
+    private static void replay() {
+        List<String> entryList = LocationStorage.journal.read();
+        Map<UUID, Treasure> treasureMap = new HashMap<>();
+        int invalidEntries = 0;
+
+        for (String entry : entryList) {
+            String[] parts = entry.split("\t", 4);
+
+            try {
+                switch (parts[0]) {
+                    case "insert" -> {
+                        BlockKey key = BlockKey.parse(parts[3]);
+                        Treasure treasure = treasureMap.computeIfAbsent(UUID.fromString(parts[2]), TreasureStorage::get);
+                        if (treasure == null) {
+                            invalidEntries++;
+                            continue;
+                        }
+
+                        // Check if the location's world is not loaded yet.
+                        if (key == null) {
+                            if (!LocationStorage.replayUnloaded(parts)) invalidEntries++;
+                            continue;
+                        }
+
+                        TreasureLocation location = new TreasureLocation(treasure, key);
+                        location.setOrdinal(Integer.parseInt(parts[1]));
+                        LocationStorage.nextOrdinal = Math.max(LocationStorage.nextOrdinal, location.getOrdinal() + 1);
+                        LocationStorage.put(location);
+                    }
+                    case "remove" -> {
+                        TreasureLocation location = LocationStorage.get(parts[1]);
+                        if (location != null) {
+                            LocationStorage.delete(location);
+                            continue;
+                        }
+
+                        // Check if the location is in a world that is not loaded.
+                        int ordinal = LocationStorage.removeUnloaded(parts[1]);
+                        LocationStorage.queue.set(parts[1], null);
+                        if (ordinal >= 0) LocationStorage.releaseOrdinal(ordinal);
+                    }
+                    case "spawn" -> LocationStorage.spawnState.set(Integer.parseInt(parts[1]), parts[2].equals("1"));
+                    default -> invalidEntries++;
+                }
+            } catch (RuntimeException exception) {
+                invalidEntries++;
+            }
+        }
+
+        if (invalidEntries > 0) {
+            ConsoleManager.warn("Skipped " + invalidEntries + " location journal entries that could not be replayed.");
+        }
+
+        // Fold the replayed changes into the location files.
+        if (!entryList.isEmpty()) LocationStorage.flush();
+        LocationStorage.journal.delete();
+
+        if (ConfigFile.isLocationJournalEnabled()) {
+            LocationStorage.journal.open();
+            LocationStorage.isJournaled = true;
+        }
+    }
+
+    /**
+     * Used to replay an inserted location in a world that is not loaded.
+     * The location is written to its file and kept until the world loads.
+     *
+     * @param parts The parts of the insert entry.
+     * @return False if the location identifier is invalid.
+     */
+    private static boolean replayUnloaded(@NotNull String[] parts) {
+        String[] keyParts = BlockKey.split(parts[3]);
+        if (keyParts == null) return false;
+
+        Map<String, Object> locationData = new LinkedHashMap<>();
+        locationData.put("x", Integer.parseInt(keyParts[1]));
+        locationData.put("y", Integer.parseInt(keyParts[2]));
+        locationData.put("z", Integer.parseInt(keyParts[3]));
+        locationData.put("world", keyParts[0]);
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("treasure_identifier", parts[2]);
+        data.put("location", locationData);
+        data.put("ordinal", Integer.parseInt(parts[1]));
+
+        LocationStorage.nextOrdinal = Math.max(LocationStorage.nextOrdinal, Integer.parseInt(parts[1]) + 1);
+        LocationStorage.unloadedMap.computeIfAbsent(keyParts[0], name -> new HashMap<>()).put(parts[3], data);
+        LocationStorage.queue.set(parts[3], data);
+        return true;
+    }
+
+    /**
+     * Used to reload a single location file after it was changed
+     * or deleted outside the plugin. Only this file is parsed,
+     * and the registry is updated with the difference.
+     *
+     * @param file The location file that changed.
+     */
+    public static void reloadFile(@NotNull File file) {
+        synchronized (LocationStorage.flushLock) {
+
+            // Write pending changes first, so they are not lost or read back as edits.
+            LocationStorage.flush();
+
+            YamlConfiguration configuration = new YamlConfiguration(file);
+            Set<String> keys = new HashSet<>();
+            if (file.exists()) {
+                configuration.load();
+                keys.addAll(configuration.getKeys());
+            }
+
+            Set<String> previousKeys = Storage.reroute(file, keys, LocationStorage.storage);
+
+            // Remove the locations that are no longer in the file.
+            for (String key : previousKeys) {
+                if (keys.contains(key)) continue;
+
+                BlockKey blockKey = BlockKey.parse(key);
+
+                synchronized (LocationStorage.mutationLock) {
+                    if (blockKey != null) {
+                        LocationStorage.unregister(blockKey);
+                        continue;
+                    }
+
+                    // Check if the location is in a world that is not loaded.
+                    int ordinal = LocationStorage.removeUnloaded(key);
+                    if (ordinal >= 0) LocationStorage.releaseOrdinal(ordinal);
+                }
+            }
+
+            // Add or replace the locations that are new or changed.
+            Map<UUID, Treasure> treasureMap = new HashMap<>();
+            for (String key : keys) {
+                ConfigurationSection section = configuration.getSection(key);
+
+                // Check if the location's world is not loaded yet.
+                synchronized (LocationStorage.mutationLock) {
+                    if (LocationStorage.keepUnloaded(key, section)) {
+                        int ordinal = section.getInteger("ordinal", -1);
+                        LocationStorage.nextOrdinal = Math.max(LocationStorage.nextOrdinal, ordinal + 1);
+                        continue;
+                    }
+                }
+
+                TreasureLocation location = TreasureLocation.create(section,
+                        identifier -> treasureMap.computeIfAbsent(identifier, TreasureStorage::get)
+                );
+                if (location == null) continue;
+
+                // Check if the location has not changed.
+                TreasureLocation current = LocationStorage.locationMap.get(location.getKey());
+                if (current != null
+                        && current.getOrdinal() == location.getOrdinal()
+                        && current.getTreasure().getIdentifier().equals(location.getTreasure().getIdentifier())) {
+                    continue;
+                }
+
+                synchronized (LocationStorage.mutationLock) {
+                    int ordinal = location.getOrdinal();
+                    TreasureLocation owner = LocationStorage.getByOrdinal(ordinal);
+
+                    // Check if the location needs a new ordinal.
+                    if (ordinal < 0 || (owner != null && owner != current)) {
+                        location.setOrdinal(-1);
+                        LocationStorage.insert(location);
+                        continue;
+                    }
+
+                    LocationStorage.nextOrdinal = Math.max(LocationStorage.nextOrdinal, ordinal + 1);
+                    LocationStorage.register(location);
+                }
+            }
+        }
+    }
+
+    /**
+     * Used to refresh the treasure locations of a treasure type
+     * after the treasure has been changed or deleted.
+     * The spawned state of each location is kept.
+     * <p>
+     * When the treasure no longer exists, its locations are
+     * only removed from memory. They are still saved, like the
+     * locations skipped when loading, so players keep them as redeemed.
+     * </p>
+     *
+     * @param treasureIdentifier The treasure's identifier.
+     */
+    public static void refresh(@NotNull UUID treasureIdentifier) {
+        Treasure treasure = TreasureStorage.get(treasureIdentifier);
+
+        synchronized (LocationStorage.mutationLock) {
+            Iterator<Map.Entry<BlockKey, TreasureLocation>> iterator = LocationStorage.locationMap.entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Map.Entry<BlockKey, TreasureLocation> entry = iterator.next();
+                TreasureLocation location = entry.getValue();
+                if (!location.getTreasure().getIdentifier().equals(treasureIdentifier)) continue;
+
+                // Check if the treasure no longer exists.
+                if (treasure == null) {
+                    iterator.remove();
+                    LocationStorage.unindex(location.getKey());
+                    LocationStorage.ordinalList.set(location.getOrdinal(), null);
+                    continue;
+                }
+
+                TreasureLocation refreshed = new TreasureLocation(treasure, location.getKey());
+                refreshed.convert(location.convert());
+                entry.setValue(refreshed);
+                LocationStorage.ordinalList.set(refreshed.getOrdinal(), refreshed);
+            }
+
+            // Update the counter of the treasure type.
+            if (treasure == null) {
+                LocationStorage.counterMap.remove(treasureIdentifier);
+                return;
+            }
+
+            TreasureCounter counter = LocationStorage.counterMap.get(treasureIdentifier);
+            if (counter != null) counter.setTreasureName(treasure.getName());
+        }
     }
 
     /**
-     * Used to insert a treasure location into the first file.
+     * Used to count the locations of each treasure type again.
+     */
+    private static void recount() {
+        LocationStorage.counterMap.clear();
+
+        for (TreasureLocation location : LocationStorage.locationMap.values()) {
+            LocationStorage.count(location);
+        }
+    }
+
+    /**
+     * Used to add a treasure location to the counter of its treasure type.
+     *
+     * @param treasureLocation The instance of the treasure location.
+     */
+    private static void count(@NotNull TreasureLocation treasureLocation) {
+        LocationStorage.counterMap
+                .computeIfAbsent(treasureLocation.getTreasure().getIdentifier(),
+                        identifier -> new TreasureCounter(treasureLocation.getTreasure().getName()))
+                .add(treasureLocation.getOrdinal(), LocationStorage.isSpawned(treasureLocation));
+    }
+
+    /**
+     * Used to remove a treasure location from the counter of its treasure type.
+     * This should be called before its ordinal is released.
+     *
+     * @param treasureLocation The instance of the treasure location.
+     */
+    private static void uncount(@NotNull TreasureLocation treasureLocation) {
+        UUID treasureIdentifier = treasureLocation.getTreasure().getIdentifier();
+        TreasureCounter counter = LocationStorage.counterMap.get(treasureIdentifier);
+        if (counter == null) return;
+
+        counter.remove(treasureLocation.getOrdinal(), LocationStorage.isSpawned(treasureLocation));
+        if (counter.isEmpty()) LocationStorage.counterMap.remove(treasureIdentifier);
+    }
+
+    /**
+     * Used to insert a treasure location.
+     * The location is available immediately and will be
+     * written to its file on the next {@link LocationStorage#flush()}.
      *
      * @param treasureLocation The instance of the treasure location.
      */
     public static void insert(@NotNull TreasureLocation treasureLocation) {
-        String identifier = treasureLocation.getIdentifier();
-        ConfigurationSection section = treasureLocation.convert();
-        YamlConfiguration configuration = Storage.getConfiguration(identifier, LocationStorage.storage);
+        synchronized (LocationStorage.mutationLock) {
+            if (treasureLocation.getOrdinal() < 0) {
+                treasureLocation.setOrdinal(LocationStorage.nextOrdinal++);
+            }
 
-        if (configuration == null) return;
+            LocationStorage.put(treasureLocation);
+            if (LocationStorage.isJournaled) LocationStorage.journal.appendInsert(treasureLocation);
+        }
+    }
 
-        // Save it to the file.
-        configuration.load();
-        configuration.set(identifier, section.getMap());
-        configuration.save();
-        LocationStorage.storage.reload();
+    /**
+     * Used to add a treasure location to the registry
+     * and queue it to be written to its file.
+     *
+     * @param treasureLocation The instance of the treasure location.
+     */
+    private static void put(@NotNull TreasureLocation treasureLocation) {
+        LocationStorage.register(treasureLocation);
+        LocationStorage.queue.set(treasureLocation.getIdentifier(), treasureLocation.convert().getMap());
+    }
+
+    /**
+     * Used to remove a treasure location from the registry
+     * and queue it to be removed from its file.
+     *
+     * @param treasureLocation The instance of the treasure location.
+     */
+    private static void delete(@NotNull TreasureLocation treasureLocation) {
+        LocationStorage.unregister(treasureLocation.getKey());
+        LocationStorage.queue.set(treasureLocation.getIdentifier(), null);
+    }
+
+    /**
+     * Used to write the pending location changes to the location files.
+     * When journaling, the written entries are then removed from the journal.
+     * If any file could not be written, the failed changes are put back
+     * into the queue and the journal is kept, so nothing is lost.
+     * This can be called from any thread.
+     */
+    public static void flush() {
+        synchronized (LocationStorage.flushLock) {
+            Map<String, Map<String, Object>> pendingMap;
+            byte[] spawnStateBytes;
+            long journalPosition;
+            int ordinal;
+
+            synchronized (LocationStorage.mutationLock) {
+                pendingMap = LocationStorage.queue.drain();
+                spawnStateBytes = LocationStorage.spawnState.snapshot();
+                journalPosition = LocationStorage.journal.getPosition();
+                ordinal = LocationStorage.nextOrdinal;
+            }
+
+            // Locations are only removed from their files once their ordinals are saved as used.
+            boolean isWritten = LocationStorage.writeNextOrdinal(ordinal);
+            if (isWritten) isWritten = LocationStorage.queue.write(pendingMap);
+            else LocationStorage.queue.requeue(pendingMap);
+
+            isWritten &= LocationStorage.spawnState.write(spawnStateBytes);
+
+            // Only remove the journal entries once every change is in a file.
+            if (!isWritten) {
+                ConsoleManager.warn("Some location changes could not be written. They will be written on the next save.");
+                return;
+            }
+
+            LocationStorage.journal.truncate(journalPosition);
+        }
+    }
+
+    /**
+     * Used to read the next ordinal from the ordinal file.
+     *
+     * @return The next ordinal.
+     * 0 if the file does not exist or cannot be read.
+     */
+    private static int readNextOrdinal() {
+        if (!LocationStorage.ordinalFile.exists()) return 0;
+
+        try {
+            return Math.max(0, Integer.parseInt(Files.readString(LocationStorage.ordinalFile.toPath()).trim()));
+        } catch (IOException | NumberFormatException exception) {
+            ConsoleManager.error("Unable to read the next location ordinal from " + LocationStorage.ordinalFile.getAbsolutePath());
+            exception.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Used to save the next ordinal to the ordinal
+     * file if it is higher than the saved ordinal.
+     * This should be called while holding the flush lock.
+     *
+     * @param ordinal The next ordinal.
+     * @return True if the ordinal was written or was already saved.
+     */
+    private static boolean writeNextOrdinal(int ordinal) {
+        if (ordinal <= LocationStorage.savedNextOrdinal) return true;
+
+        try {
+            GroupCommit.writeAtomically(LocationStorage.ordinalFile, Integer.toString(ordinal).getBytes(StandardCharsets.UTF_8));
+            LocationStorage.savedNextOrdinal = ordinal;
+            return true;
+        } catch (IOException exception) {
+            ConsoleManager.error("Unable to save the next location ordinal to " + LocationStorage.ordinalFile.getAbsolutePath());
+            exception.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Used to add a treasure location to the in-memory registry.
+     *
+     * @param treasureLocation The instance of the treasure location.
+     */
+    private static void register(@NotNull TreasureLocation treasureLocation) {
+        BlockKey key = treasureLocation.getKey();
+        int ordinal = treasureLocation.getOrdinal();
+
+        while (LocationStorage.ordinalList.size() <= ordinal) LocationStorage.ordinalList.add(null);
+        LocationStorage.ordinalList.set(ordinal, treasureLocation);
+        LocationStorage.identifierOrdinalMap.put(treasureLocation.getIdentifier(), ordinal);
+
+        TreasureLocation previous = LocationStorage.locationMap.put(key, treasureLocation);
+        if (previous != null) {
+            LocationStorage.uncount(previous);
+
+            // Check if the location was replaced by a new location.
+            if (previous.getOrdinal() != ordinal) LocationStorage.releaseOrdinal(previous.getOrdinal());
+            LocationStorage.count(treasureLocation);
+            return;
+        }
+
+        LocationStorage.count(treasureLocation);
+
+        LocationStorage.chunkIndexMap
+                .computeIfAbsent(key.getWorldUuid(), uuid -> new ChunkIndex())
+                .add(key.getX() >> 4, key.getZ() >> 4);
+    }
+
+    /**
+     * Used to remove a treasure location from the in-memory registry.
+     *
+     * @param key The block the treasure is located at.
+     */
+    private static void unregister(@NotNull BlockKey key) {
+        TreasureLocation treasureLocation = LocationStorage.locationMap.remove(key);
+        if (treasureLocation == null) return;
+
+        LocationStorage.identifierOrdinalMap.remove(treasureLocation.getIdentifier());
+        LocationStorage.uncount(treasureLocation);
+        LocationStorage.unindex(key);
+        LocationStorage.releaseOrdinal(treasureLocation.getOrdinal());
+    }
+
+    /**
+     * Used to release the ordinal of a location that was removed.
+     * The ordinal is not reused, even after a restart.
+     *
+     * @param ordinal The location's ordinal.
+     */
+    private static void releaseOrdinal(int ordinal) {
+        if (ordinal < 0) return;
+
+        synchronized (LocationStorage.mutationLock) {
+            // Locations in worlds that are not loaded are not in the list.
+            if (ordinal < LocationStorage.ordinalList.size()) LocationStorage.ordinalList.set(ordinal, null);
+            LocationStorage.spawnState.set(ordinal, false);
+        }
+
+        // Players should not keep a location that no longer exists as redeemed.
+        DataStorage.resetLocationData(ordinal);
+    }
+
+    /**
+     * Used to get a treasure location by its ordinal.
+     *
+     * @param ordinal The location's ordinal.
+     * @return The instance of the treasure location.
+     * Null if there is no location with this ordinal.
+     */
+    public static @Nullable TreasureLocation getByOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= LocationStorage.ordinalList.size()) return null;
+        return LocationStorage.ordinalList.get(ordinal);
+    }
+
+    /**
+     * Used to check if a treasure location is spawned.
+     *
+     * @param treasureLocation The instance of the treasure location.
+     * @return True if the treasure is spawned.
+     */
+    public static boolean isSpawned(@NotNull TreasureLocation treasureLocation) {
+        return LocationStorage.spawnState.get(treasureLocation.getOrdinal());
+    }
+
+    /**
+     * Used to set if a treasure location is spawned.
+     * If the location is not in storage, it will be inserted.
+     *
+     * @param treasureLocation The instance of the treasure location.
+     * @param isSpawned        True if the treasure is spawned.
+     */
+    public static void setSpawned(@NotNull TreasureLocation treasureLocation, boolean isSpawned) {
+        TreasureLocation registered = LocationStorage.locationMap.get(treasureLocation.getKey());
+
+        // Check if the location is not in storage.
+        if (registered == null || registered.getOrdinal() != treasureLocation.getOrdinal()) {
+            LocationStorage.insert(treasureLocation);
+        }
+
+        synchronized (LocationStorage.mutationLock) {
+            if (LocationStorage.spawnState.set(treasureLocation.getOrdinal(), isSpawned)) {
+                TreasureCounter counter = LocationStorage.counterMap.get(treasureLocation.getTreasure().getIdentifier());
+                if (counter != null) counter.setSpawned(treasureLocation.getOrdinal(), isSpawned);
+            }
+
+            if (LocationStorage.isJournaled) LocationStorage.journal.appendSpawn(treasureLocation.getOrdinal(), isSpawned);
+        }
+    }
+
+    /**
+     * Used to remove a block from the chunk index.
+     *
+     * @param key The block the treasure is located at.
+     */
+    private static void unindex(@NotNull BlockKey key) {
+        ChunkIndex chunkIndex = LocationStorage.chunkIndexMap.get(key.getWorldUuid());
+        if (chunkIndex == null) return;
+
+        chunkIndex.remove(key.getX() >> 4, key.getZ() >> 4);
+        if (chunkIndex.isEmpty()) LocationStorage.chunkIndexMap.remove(key.getWorldUuid());
     }
 
     /**
@@ -83,11 +860,33 @@ public final class LocationStorage {
      * @return The instance of the treasure location.
      */
     public static @Nullable TreasureLocation get(String identifier) {
-        LocationStorage.storage.reload(); // When files are deleted the config isn't reloaded.
-        if (!LocationStorage.storage.getKeys().contains(identifier)) return null;
-        ConfigurationSection section = LocationStorage.storage.getSection(identifier);
-        if (section == null) return null;
-        return TreasureLocation.create(section);
+        BlockKey key = BlockKey.parse(identifier);
+        if (key == null) return null;
+        return LocationStorage.locationMap.get(key);
+    }
+
+    /**
+     * Used to get the ordinal of a saved location using its identifier.
+     * This includes locations in worlds that are not loaded,
+     * and can be called from any thread.
+     *
+     * @param identifier The location's identifier.
+     * @return The location's ordinal.
+     * -1 if there is no saved location with this identifier.
+     */
+    public static int getOrdinal(@NotNull String identifier) {
+        return LocationStorage.identifierOrdinalMap.getOrDefault(identifier, -1);
+    }
+
+    /**
+     * Used to get a treasure location at a block.
+     *
+     * @param key The block key.
+     * @return The treasure location.
+     * Null if there is no treasure at this block.
+     */
+    public static @Nullable TreasureLocation get(@NotNull BlockKey key) {
+        return LocationStorage.locationMap.get(key);
     }
 
     /**
@@ -97,8 +896,9 @@ public final class LocationStorage {
      * @return The treasure location.
      */
     public static @Nullable TreasureLocation get(@NotNull Location location) {
-        String identifier = TreasureLocation.getIdentifier(location);
-        return LocationStorage.get(identifier);
+        BlockKey key = BlockKey.of(location);
+        if (key == null) return null;
+        return LocationStorage.locationMap.get(key);
     }
 
     /**
@@ -115,8 +915,7 @@ public final class LocationStorage {
         World world = Bukkit.getWorld(worldName);
         if (world == null) return null;
 
-        Location location = new Location(world, x, y, z);
-        return LocationStorage.get(location);
+        return LocationStorage.locationMap.get(BlockKey.of(world, x, y, z));
     }
 
     /**
@@ -125,32 +924,7 @@ public final class LocationStorage {
      * @return The list of all treasure locations.
      */
     public static @NotNull List<TreasureLocation> getAll() {
-        LocationStorage.storage.reload(); // When files are deleted the config isn't reloaded.
-        List<TreasureLocation> treasureLocationList = new ArrayList<>();
-        boolean containsInvalidLocations = false;
-
-        for (String key : LocationStorage.storage.getKeys()) {
-            ConfigurationSection section = LocationStorage.storage.getSection(key);
-            TreasureLocation location = TreasureLocation.create(section);
-
-            // Check if the location is null.
-            if (location == null) {
-                containsInvalidLocations = true;
-                continue;
-            }
-
-            treasureLocationList.add(location);
-        }
-
-        // Check if there were invalid locations.
-        if (containsInvalidLocations) {
-            ConsoleManager.warn(
-                    "When spawning treasure, there was treasure that could " +
-                            "not be spawned due to the treasure type no longer existing."
-            );
-        }
-
-        return treasureLocationList;
+        return new ArrayList<>(LocationStorage.locationMap.values());
     }
 
     /**
@@ -188,22 +962,10 @@ public final class LocationStorage {
      * @return A random treasure location.
      */
     public static @Nullable TreasureLocation getRandomEmpty(@NotNull UUID identifier) {
-        List<TreasureLocation> options = new ArrayList<>();
-
-        // Loop though all treasure locations.
-        for (TreasureLocation location : LocationStorage.getAll()) {
+        TreasureCounter counter = LocationStorage.counterMap.get(identifier);
+        if (counter == null) return null;
 
-            // Check if the location is already taken.
-            if (location.isSpawned()) continue;
-
-            // Check if they have the same identifier.
-            if (location.getTreasure().getIdentifier() != identifier) continue;
-
-            options.add(location);
-        }
-
-        Collections.shuffle(options);
-        return options.isEmpty() ? null : options.get(0);
+        return LocationStorage.getByOrdinal(counter.getRandomUnspawned());
     }
 
     /**
@@ -212,7 +974,7 @@ public final class LocationStorage {
      * @return The total amount of spawn locations.
      */
     public static int getTotalAmount() {
-        return LocationStorage.storage.getKeys().size();
+        return LocationStorage.locationMap.size();
     }
 
     /**
@@ -223,14 +985,25 @@ public final class LocationStorage {
     public static int getTotalAmount(@NotNull String treasureName) {
         int amount = 0;
 
-        for (TreasureLocation location : LocationStorage.getAll()) {
-            if (!location.getTreasure().getName().equals(treasureName)) continue;
-            amount++;
+        // Treasure types can share a name.
+        for (TreasureCounter counter : LocationStorage.counterMap.values()) {
+            if (counter.getTreasureName().equals(treasureName)) amount += counter.getTotal();
         }
 
         return amount;
     }
 
+    /**
+     * Used to get the total amount of spawn locations of a treasure type.
+     *
+     * @param treasureIdentifier The treasure's identifier.
+     * @return The total amount of spawn locations.
+     */
+    public static int getTotalAmount(@NotNull UUID treasureIdentifier) {
+        TreasureCounter counter = LocationStorage.counterMap.get(treasureIdentifier);
+        return counter == null ? 0 : counter.getTotal();
+    }
+
     /**
      * Used to get the total amount of treasure that is spawned.
      *
@@ -239,8 +1012,8 @@ public final class LocationStorage {
     public static int getAmountSpawned() {
         int amount = 0;
 
-        for (String key : LocationStorage.storage.getKeys()) {
-            if (LocationStorage.storage.getSection(key).getBoolean("is_spawned", false)) amount++;
+        for (TreasureCounter counter : LocationStorage.counterMap.values()) {
+            amount += counter.getSpawned();
         }
 
         return amount;
@@ -255,15 +1028,25 @@ public final class LocationStorage {
     public static int getAmountSpawned(@NotNull String treasureName) {
         int amount = 0;
 
-        for (TreasureLocation location : LocationStorage.getAll()) {
-            if (!location.isSpawned()) continue;
-            if (!location.getTreasure().getName().equals(treasureName)) continue;
-            amount++;
+        // Treasure types can share a name.
+        for (TreasureCounter counter : LocationStorage.counterMap.values()) {
+            if (counter.getTreasureName().equals(treasureName)) amount += counter.getSpawned();
         }
 
         return amount;
     }
 
+    /**
+     * Used to get the amount of treasure of a treasure type that is spawned.
+     *
+     * @param treasureIdentifier The treasure's identifier.
+     * @return The amount of treasure that is spawned.
+     */
+    public static int getAmountSpawned(@NotNull UUID treasureIdentifier) {
+        TreasureCounter counter = LocationStorage.counterMap.get(treasureIdentifier);
+        return counter == null ? 0 : counter.getSpawned();
+    }
+
     /**
      * Used to check if the configuration contains a key.
      * This will check if there is a treasure in that
@@ -273,7 +1056,24 @@ public final class LocationStorage {
      * @return True if there is a treasure in the location.
      */
     public static boolean contains(Location location) {
-        return LocationStorage.storage.getKeys().contains(TreasureLocation.getIdentifier(location));
+        BlockKey key = BlockKey.of(location);
+        return key != null && LocationStorage.locationMap.containsKey(key);
+    }
+
+    /**
+     * Used to check if there is a treasure location at a block.
+     * Blocks in chunks without treasure locations are rejected
+     * without allocating, as this is called for every block interaction.
+     *
+     * @param block The instance of the block.
+     * @return True if there is a treasure at the block.
+     */
+    public static boolean contains(@NotNull Block block) {
+        ChunkIndex chunkIndex = LocationStorage.chunkIndexMap.get(block.getWorld().getUID());
+        if (chunkIndex == null) return false;
+        if (!chunkIndex.contains(block.getX() >> 4, block.getZ() >> 4)) return false;
+
+        return LocationStorage.locationMap.containsKey(BlockKey.of(block));
     }
 
     /**
@@ -289,38 +1089,76 @@ public final class LocationStorage {
         // Remove the location from the world.
         location.removeSilently();
 
-        // Remove the location from configuration.
-        for (File file : LocationStorage.storage.getFiles()) {
-            YamlConfiguration configuration = new YamlConfiguration(file);
-            configuration.load();
-
-            if (!configuration.getKeys().contains(identifier)) continue;
-
-            configuration.set(identifier, null);
-            configuration.save();
-
-            LocationStorage.storage.reload();
-            return;
+        // Remove the location from storage.
+        synchronized (LocationStorage.mutationLock) {
+            LocationStorage.delete(location);
+            if (LocationStorage.isJournaled) LocationStorage.journal.appendRemove(location.getIdentifier());
         }
-        ConsoleManager.warn("Unable to delete treasure location with identifier " + identifier);
     }
 
     /**
      * Used to remove all locations.
      */
     public static void removeAll() {
+        // The ordinals must be saved as used before the locations are removed.
+        synchronized (LocationStorage.flushLock) {
+            int ordinal;
+            synchronized (LocationStorage.mutationLock) {
+                ordinal = LocationStorage.nextOrdinal;
+            }
+
+            if (!LocationStorage.writeNextOrdinal(ordinal)) {
+                ConsoleManager.warn("The locations were not removed, as the next ordinal could not be saved.");
+                return;
+            }
+        }
+
         // Remove the treasures from the worlds.
         for (TreasureLocation location : LocationStorage.getAll()) {
             location.removeForever();
+            DataStorage.resetLocationData(location.getOrdinal());
         }
 
-        // Remove the treasures from the configuration file.
-        for (File file : LocationStorage.storage.getFiles()) {
-            YamlConfiguration configuration = new YamlConfiguration(file);
-            configuration.set(null);
-            configuration.save();
+        synchronized (LocationStorage.flushLock) {
+            for (Map<String, Map<String, Object>> keyMap : LocationStorage.unloadedMap.values()) {
+                for (Map<String, Object> data : keyMap.values()) {
+                    if (data.get("ordinal") instanceof Number ordinal) DataStorage.resetLocationData(ordinal.intValue());
+                }
+            }
+
+            LocationStorage.unloadedMap.clear();
+            LocationStorage.locationMap.clear();
+            LocationStorage.identifierOrdinalMap.clear();
+            LocationStorage.chunkIndexMap.clear();
+            LocationStorage.ordinalList.clear();
+            LocationStorage.counterMap.clear();
+            LocationStorage.spawnState.clear();
+            LocationStorage.queue.clear();
+
+            // Remove the treasures from the configuration file.
+            for (File file : LocationStorage.storage.getFiles()) {
+                try {
+                    GroupCommit.writeAtomically(file, new byte[0]);
+                } catch (IOException exception) {
+                    ConsoleManager.error("Unable to remove the locations from " + file.getAbsolutePath());
+                    exception.printStackTrace();
+                }
+            }
+
+            Storage.index(LocationStorage.storage);
+            LocationStorage.spawnState.save();
+            LocationStorage.journal.truncate(LocationStorage.journal.getPosition());
         }
+    }
 
-        LocationStorage.storage.reload();
+    /**
+     * Used to get the storage medium.
+     * If the return value is changed, functionality
+     * will need to also change elsewhere in the plugin.
+     *
+     * @return The location directory.
+     */
+    public static ConfigurationDirectory getMedium() {
+        return LocationStorage.storage;
     }
 }
@@ -1,6 +1,8 @@
 package com.github.cozyplugins.cozytreasurehunt.storage;
 
 import com.github.cozyplugins.cozytreasurehunt.TreasureLocation;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.FoundRing;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.OrdinalSet;
 import com.github.cozyplugins.cozytreasurehunt.storage.indicator.Savable;
 import com.github.smuddgge.squishyconfiguration.indicator.ConfigurationConvertable;
 import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
@@ -22,6 +24,19 @@ public class PlayerData implements Savable, ConfigurationConvertable<PlayerData>
      */
     private @NotNull Map<String, Integer> treasureFound;
 
+    /**
+     * The ordinals of the locations this player has redeemed.
+     * Older versions saved the location identifiers in
+     * the information section under no_longer_redeemable.
+     */
+    private @NotNull OrdinalSet redeemedSet;
+
+    /**
+     * The amount of treasure found on each of the last days.
+     * Used for the daily and weekly leaderboards.
+     */
+    private @NotNull FoundRing recentFound;
+
     /**
      * Used to create a new player data class.
      *
@@ -31,6 +46,8 @@ public class PlayerData implements Savable, ConfigurationConvertable<PlayerData>
         this.playerUuid = playerUuid;
         this.information = new MemoryConfigurationSection(new HashMap<>());
         this.treasureFound = new HashMap<>();
+        this.redeemedSet = new OrdinalSet();
+        this.recentFound = new FoundRing();
     }
 
     /**
@@ -88,15 +105,28 @@ public class PlayerData implements Savable, ConfigurationConvertable<PlayerData>
         return amount;
     }
 
+    /**
+     * Used to get the amount of treasure found on each of the last days.
+     *
+     * @return The found ring.
+     */
+    public @NotNull FoundRing getRecentFound() {
+        return this.recentFound;
+    }
+
     /**
      * Used to increase the amount of treasure found for a specific treasure.
      * This will also increase the amount redeemed.
+     * This only changes this instance. To also update the totals
+     * and the leaderboard, use {@link DataStorage#increaseTreasureFound(PlayerData, TreasureLocation)}.
      *
      * @param location The instance of the treasure location.
      * @return This instance.
      */
     public @NotNull PlayerData increaseTreasureFound(@NotNull TreasureLocation location) {
         String treasureName = location.getTreasure().getName();
+        this.recentFound.add(FoundRing.today(), 1);
+
         if (this.treasureFound.containsKey(treasureName)) {
             this.treasureFound.put(treasureName, this.treasureFound.get(treasureName) + 1);
 
@@ -125,13 +155,9 @@ public class PlayerData implements Savable, ConfigurationConvertable<PlayerData>
      * @param location The instance of the location.
      */
     public void addRedeemedLocation(@NotNull TreasureLocation location) {
-        String treasureName = location.getTreasure().getName();
-
-        // Store treasure location.
-        ConfigurationSection locationSection = this.information.getSection("no_longer_redeemable");
-        List<String> locationList = locationSection.getListString(treasureName, new ArrayList<>());
-        locationList.add(location.getIdentifier());
-        locationSection.set(treasureName, locationList);
+        if (this.redeemedSet.add(location.getOrdinal())) {
+            DataStorage.getRedemptionIndex().add(location.getOrdinal(), this.playerUuid);
+        }
     }
 
     /**
@@ -142,17 +168,34 @@ public class PlayerData implements Savable, ConfigurationConvertable<PlayerData>
      * @return This instance.
      */
     public @NotNull PlayerData removeRedeemedLocation(@NotNull TreasureLocation location) {
-        String treasureName = location.getTreasure().getName();
+        return this.removeRedeemedLocation(location.getOrdinal());
+    }
 
-        // Remove redeemed location.
-        ConfigurationSection locationSection = this.information.getSection("no_longer_redeemable");
-        List<String> locationList = locationSection.getListString(treasureName, new ArrayList<>());
-        locationList.remove(location.getIdentifier());
-        locationSection.set(treasureName, locationList);
+    /**
+     * Used to remove a redeemed location using its ordinal.
+     * This is also used when the location no longer exists.
+     *
+     * @param ordinal The location's ordinal.
+     * @return This instance.
+     */
+    public @NotNull PlayerData removeRedeemedLocation(int ordinal) {
+        if (this.redeemedSet.remove(ordinal)) {
+            DataStorage.getRedemptionIndex().remove(ordinal, this.playerUuid);
+        }
 
         return this;
     }
 
+    /**
+     * Used to get the ordinals of every location
+     * this player has redeemed.
+     *
+     * @return The set of location ordinals.
+     */
+    public @NotNull OrdinalSet getRedeemedLocations() {
+        return this.redeemedSet;
+    }
+
     /**
      * Used to check if a player has redeemed a treasure location.
      *
@@ -160,13 +203,7 @@ public class PlayerData implements Savable, ConfigurationConvertable<PlayerData>
      * @return True if the player has redeemed this location.
      */
     public boolean hasRedeemed(@NotNull TreasureLocation location) {
-        for (String locationIdentifier : this.information.getSection("no_longer_redeemable")
-                .getListString(location.getTreasure().getName())) {
-
-            if (locationIdentifier.equals(location.getIdentifier())) return true;
-        }
-
-        return false;
+        return this.redeemedSet.contains(location.getOrdinal());
     }
 
     @Override
@@ -180,6 +217,10 @@ public class PlayerData implements Savable, ConfigurationConvertable<PlayerData>
 
         section.set("treasure_found", this.treasureFound);
         section.set("info", this.information.getMap());
+        if (!this.redeemedSet.isEmpty()) section.set("redeemed", this.redeemedSet.encode());
+
+        Map<String, Integer> foundPerDay = this.recentFound.toMap(FoundRing.today());
+        if (!foundPerDay.isEmpty()) section.set("found_per_day", foundPerDay);
 
         return section;
     }
@@ -194,6 +235,13 @@ public class PlayerData implements Savable, ConfigurationConvertable<PlayerData>
         }
 
         this.information = new MemoryConfigurationSection(section.getSection("info").getMap());
+        this.redeemedSet = PlayerRecord.readRedeemed(section.getMap());
+        this.recentFound = FoundRing.fromMap(section.getMap().get("found_per_day") instanceof Map<?, ?> dayMap ? dayMap : null);
+
+        // Only keep the redeemed locations from older versions
+        // that could not be converted yet.
+        this.information.set("no_longer_redeemable", PlayerRecord.readUnresolvedRedeemed(section.getMap()));
+
         return this;
     }
 
@@ -0,0 +1,246 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage;
+
+import com.github.cozyplugins.cozytreasurehunt.storage.index.FoundRing;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.OrdinalSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Represents a read only summary of a player's data.
+ * <p>
+ * Only the player's name, the treasure they have found, the
+ * treasure they found on each of the last days and the
+ * locations they have redeemed are kept, so every player can be
+ * looped though without building their configuration sections.
+ * </p>
+ * <li>
+ * Use {@link DataStorage#get(UUID)} to get the full player data.
+ * </li>
+ */
+public class PlayerRecord {
+
+    private final @NotNull UUID playerUuid;
+    private final @Nullable String name;
+    private final @NotNull Map<String, Integer> treasureFound;
+    private final @NotNull OrdinalSet redeemedLocations;
+    private final @NotNull FoundRing recentFound;
+    private final int amountFound;
+
+    /**
+     * Used to create a player record.
+     *
+     * @param playerUuid        The player's uuid.
+     * @param name              The player's name.
+     * @param treasureFound     The map of treasure names to the amount found.
+     * @param redeemedLocations The ordinals of the locations the player has redeemed.
+     * @param recentFound       The amount of treasure found on each of the last days.
+     */
+    public PlayerRecord(@NotNull UUID playerUuid,
+                        @Nullable String name,
+                        @NotNull Map<String, Integer> treasureFound,
+                        @NotNull OrdinalSet redeemedLocations,
+                        @NotNull FoundRing recentFound) {
+
+        this.playerUuid = playerUuid;
+        this.name = name;
+        this.treasureFound = treasureFound;
+        this.redeemedLocations = redeemedLocations;
+        this.recentFound = recentFound;
+
+        int amount = 0;
+        for (int value : treasureFound.values()) amount += value;
+        this.amountFound = amount;
+    }
+
+    /**
+     * Used to get the player's uuid.
+     *
+     * @return The player's uuid.
+     */
+    public @NotNull UUID getIdentifier() {
+        return this.playerUuid;
+    }
+
+    /**
+     * Used to get the player's name when they last found treasure.
+     *
+     * @return The player's name.
+     * Null if they have not found treasure.
+     */
+    public @Nullable String getName() {
+        return this.name;
+    }
+
+    /**
+     * Used to get the treasure the player has found.
+     *
+     * @return The map of treasure names to the amount found.
+     */
+    public @NotNull Map<String, Integer> getTreasureFound() {
+        return this.treasureFound;
+    }
+
+    /**
+     * Used to get the amount of a treasure found.
+     *
+     * @param treasureName The name of the treasure.
+     * @return The amount of the treasure found by this player.
+     */
+    public int getTreasureFound(@NotNull String treasureName) {
+        return this.treasureFound.getOrDefault(treasureName, 0);
+    }
+
+    /**
+     * Used to get the amount of treasure found in total.
+     *
+     * @return The amount of treasure found.
+     */
+    public int getAmountFound() {
+        return this.amountFound;
+    }
+
+    /**
+     * Used to get the ordinals of the locations the player has redeemed.
+     *
+     * @return The set of location ordinals.
+     */
+    public @NotNull OrdinalSet getRedeemedLocations() {
+        return this.redeemedLocations;
+    }
+
+    /**
+     * Used to get the amount of treasure the
+     * player found on each of the last days.
+     *
+     * @return The found ring.
+     */
+    public @NotNull FoundRing getRecentFound() {
+        return this.recentFound;
+    }
+
+    /**
+     * Used to create a record from player data.
+     *
+     * @param playerData The player data.
+     * @return The player record.
+     */
+    public static @NotNull PlayerRecord of(@NotNull PlayerData playerData) {
+        return new PlayerRecord(playerData.getIdentifier(),
+                playerData.getInformation().getString("name", null),
+                new HashMap<>(playerData.getTreasureFound()),
+                playerData.getRedeemedLocations().copy(),
+                playerData.getRecentFound().copy()
+        );
+    }
+
+    /**
+     * Used to create a record from the map returned by a provider.
+     *
+     * @param playerUuid The player's uuid.
+     * @param data       The player's data.
+     * @return The player record.
+     */
+    public static @NotNull PlayerRecord of(@NotNull UUID playerUuid, @NotNull Map<?, ?> data) {
+        Map<String, Integer> treasureFound = new HashMap<>();
+        if (data.get("treasure_found") instanceof Map<?, ?> treasureMap) {
+            for (Map.Entry<?, ?> entry : treasureMap.entrySet()) {
+                if (entry.getValue() instanceof Number amount) {
+                    treasureFound.put(String.valueOf(entry.getKey()), amount.intValue());
+                }
+            }
+        }
+
+        String name = null;
+        if (data.get("info") instanceof Map<?, ?> info && info.get("name") != null) {
+            name = String.valueOf(info.get("name"));
+        }
+
+        return new PlayerRecord(playerUuid, name, treasureFound,
+                PlayerRecord.readRedeemed(data),
+                FoundRing.fromMap(data.get("found_per_day") instanceof Map<?, ?> dayMap ? dayMap : null)
+        );
+    }
+
+    /**
+     * Used to read the redeemed locations from a player's data.
+     * Redeemed location identifiers saved by older versions
+     * are converted to ordinals, using the saved ordinals so
+     * locations in worlds that are not loaded are included.
+     * This can be called from any thread.
+     *
+     * @param data The player's data.
+     * @return The set of location ordinals.
+     */
+    public static @NotNull OrdinalSet readRedeemed(@NotNull Map<?, ?> data) {
+        Object encoded = data.get("redeemed");
+        OrdinalSet redeemedSet = OrdinalSet.decode(encoded == null ? null : encoded.toString());
+
+        if (!(data.get("info") instanceof Map<?, ?> info)) return redeemedSet;
+        if (!(info.get("no_longer_redeemable") instanceof Map<?, ?> legacyMap)) return redeemedSet;
+
+        for (Object locationList : legacyMap.values()) {
+            if (!(locationList instanceof List<?> list)) continue;
+
+            for (Object locationIdentifier : list) {
+                int ordinal = LocationStorage.getOrdinal(String.valueOf(locationIdentifier));
+                if (ordinal >= 0) redeemedSet.add(ordinal);
+            }
+        }
+
+        return redeemedSet;
+    }
+
+    /**
+     * Used to get the redeemed location identifiers saved by older versions
+     * that could not be converted to ordinals yet.
+     * These are kept so they can be converted once the locations are loaded.
+     *
+     * @param data The player's data.
+     * @return The identifiers that could not be converted, keyed by treasure.
+     * Null if every identifier was converted.
+     */
+    public static @Nullable Map<String, Object> readUnresolvedRedeemed(@NotNull Map<?, ?> data) {
+        if (!(data.get("info") instanceof Map<?, ?> info)) return null;
+        if (!(info.get("no_longer_redeemable") instanceof Map<?, ?> legacyMap)) return null;
+
+        Map<String, Object> unresolvedMap = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : legacyMap.entrySet()) {
+            if (!(entry.getValue() instanceof List<?> list)) continue;
+
+            List<String> unresolvedList = new ArrayList<>();
+            for (Object locationIdentifier : list) {
+                String identifier = String.valueOf(locationIdentifier);
+                if (LocationStorage.getOrdinal(identifier) < 0) unresolvedList.add(identifier);
+            }
+
+            if (!unresolvedList.isEmpty()) unresolvedMap.put(String.valueOf(entry.getKey()), unresolvedList);
+        }
+
+        return unresolvedMap.isEmpty() ? null : unresolvedMap;
+    }
+}
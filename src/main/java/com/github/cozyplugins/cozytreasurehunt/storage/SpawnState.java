@@ -0,0 +1,193 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage;
+
+import com.github.cozyplugins.cozylibrary.ConsoleManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.BitSet;
+
+/**
+ * Represents which treasure locations are spawned.
+ * <p>
+ * Each treasure location has a stable ordinal, and the spawned
+ * locations are stored as a bitset over these ordinals.
+ * The bitset is saved to its own small file, so spawning and
+ * un-spawning treasure does not rewrite the location files.
+ * </p>
+ * <li>
+ * The methods can be called from any thread.
+ * </li>
+ */
+public class SpawnState {
+
+    private final @NotNull File file;
+    private final @NotNull Object saveLock;
+    private @NotNull BitSet spawnedSet;
+    private boolean isDirty;
+
+    /**
+     * Used to create the spawn state.
+     *
+     * @param file The file the spawn state is saved to.
+     */
+    public SpawnState(@NotNull File file) {
+        this.file = file;
+        this.saveLock = new Object();
+        this.spawnedSet = new BitSet();
+        this.isDirty = false;
+    }
+
+    /**
+     * Used to check if the spawn state has been saved before.
+     * If not, the spawn state should be migrated from the location files.
+     *
+     * @return True if the file exists.
+     */
+    public boolean exists() {
+        return this.file.exists();
+    }
+
+    /**
+     * Used to load the spawn state from the file.
+     * If the file does not exist, no locations will be spawned.
+     */
+    public synchronized void load() {
+        this.spawnedSet = new BitSet();
+        this.isDirty = false;
+        if (!this.file.exists()) return;
+
+        try {
+            this.spawnedSet = BitSet.valueOf(Files.readAllBytes(this.file.toPath()));
+        } catch (IOException exception) {
+            ConsoleManager.error("Unable to load the spawn state from " + this.file.getAbsolutePath());
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Used to check if a location is spawned.
+     *
+     * @param ordinal The location's ordinal.
+     * @return True if the location is spawned.
+     */
+    public synchronized boolean get(int ordinal) {
+        return ordinal >= 0 && this.spawnedSet.get(ordinal);
+    }
+
+    /**
+     * Used to set if a location is spawned.
+     *
+     * @param ordinal   The location's ordinal.
+     * @param isSpawned True if the location is spawned.
+     * @return True if the spawn state changed.
+     */
+    public synchronized boolean set(int ordinal, boolean isSpawned) {
+        if (ordinal < 0) return false;
+        if (this.spawnedSet.get(ordinal) == isSpawned) return false;
+
+        this.spawnedSet.set(ordinal, isSpawned);
+        this.isDirty = true;
+        return true;
+    }
+
+    /**
+     * Used to get the amount of spawned locations.
+     *
+     * @return The amount of spawned locations.
+     */
+    public synchronized int getAmountSpawned() {
+        return this.spawnedSet.cardinality();
+    }
+
+    /**
+     * Used to set locations as not spawned if their
+     * ordinals are not in the set of known ordinals.
+     *
+     * @param knownOrdinals The ordinals of the locations that exist.
+     */
+    public synchronized void retain(@NotNull BitSet knownOrdinals) {
+        int before = this.spawnedSet.cardinality();
+        this.spawnedSet.and(knownOrdinals);
+        if (this.spawnedSet.cardinality() != before) this.isDirty = true;
+    }
+
+    /**
+     * Used to set every location as not spawned.
+     */
+    public synchronized void clear() {
+        this.spawnedSet.clear();
+        this.isDirty = true;
+    }
+
+    /**
+     * Used to take a snapshot of the spawn state
+     * if it has changed since the last snapshot.
+     * It should then be passed to {@link SpawnState#write(byte[])}.
+     *
+     * @return The spawn state as bytes.
+     * Null if it has not changed.
+     */
+    public synchronized @Nullable byte[] snapshot() {
+        if (!this.isDirty) return null;
+
+        this.isDirty = false;
+        return this.spawnedSet.toByteArray();
+    }
+
+    /**
+     * Used to write a snapshot of the spawn state to the file.
+     *
+     * @param bytes The snapshot from {@link SpawnState#snapshot()}.
+     *              If null, nothing will be written.
+     * @return True if the snapshot was written or there was nothing to write.
+     */
+    public boolean write(@Nullable byte[] bytes) {
+        if (bytes == null) return true;
+
+        synchronized (this.saveLock) {
+            try {
+                GroupCommit.writeAtomically(this.file, bytes);
+                return true;
+            } catch (IOException exception) {
+                ConsoleManager.error("Unable to save the spawn state to " + this.file.getAbsolutePath());
+                exception.printStackTrace();
+
+                synchronized (this) {
+                    this.isDirty = true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Used to save the spawn state to the file
+     * if it has changed since it was last saved.
+     */
+    public void save() {
+        synchronized (this.saveLock) {
+            this.write(this.snapshot());
+        }
+    }
+}
@@ -7,6 +7,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a storage utility class.
@@ -14,31 +16,157 @@ import java.io.File;
 public class Storage {
 
     /**
-     * Used to get the configuration file instance where the key is saved to.
-     * If this key does not exist in any of the files, it will return the first configuration file.
+     * The routing table for each configuration directory.
+     * Maps a key to the file the key is saved in, so a single
+     * key can be written without loading every file in the directory.
+     */
+    private static final @NotNull Map<ConfigurationDirectory, Map<String, File>> routeMap = new ConcurrentHashMap<>();
+
+    /**
+     * The last modified time of each file after this plugin saved it.
+     * Used to tell this plugin's writes apart from files edited by hand.
+     */
+    private static final @NotNull Map<File, Long> writtenMap = new ConcurrentHashMap<>();
+
+    /**
+     * Used to build the routing table for a configuration directory.
+     * This loads every file in the directory once.
      *
-     * @param key       The instance of the key.
      * @param directory The instance of the configuration directory.
-     * @return The configuration file.
-     * Null, if there are no configuration files in the directory.
      */
-    public static @Nullable YamlConfiguration getConfiguration(@NotNull String key, @NotNull ConfigurationDirectory directory) {
+    public static void index(@NotNull ConfigurationDirectory directory) {
+        Map<String, File> routes = new ConcurrentHashMap<>();
+
         for (File file : directory.getFiles()) {
             YamlConfiguration configuration = new YamlConfiguration(file);
             configuration.load();
 
-            if (configuration.getKeys().contains(key)) {
-                return configuration;
+            for (String key : configuration.getKeys()) {
+                routes.putIfAbsent(key, file);
             }
         }
 
+        Storage.routeMap.put(directory, routes);
+    }
+
+    /**
+     * Used to get the routing table for a configuration directory.
+     * If the directory has not been indexed it will be indexed.
+     *
+     * @param directory The instance of the configuration directory.
+     * @return The map of keys to files.
+     */
+    private static @NotNull Map<String, File> getRoutes(@NotNull ConfigurationDirectory directory) {
+        Map<String, File> routes = Storage.routeMap.get(directory);
+        if (routes != null) return routes;
+
+        Storage.index(directory);
+        return Storage.routeMap.get(directory);
+    }
+
+    /**
+     * Used to check if a key is saved in a configuration directory.
+     *
+     * @param key       The instance of the key.
+     * @param directory The instance of the configuration directory.
+     * @return True if the key is saved in one of the files.
+     */
+    public static boolean contains(@NotNull String key, @NotNull ConfigurationDirectory directory) {
+        return Storage.getRoutes(directory).containsKey(key);
+    }
+
+    /**
+     * Used to get the file where the key is saved to.
+     * If this key does not exist in any of the files, it will be
+     * routed to the first file and that file will be returned.
+     *
+     * @param key       The instance of the key.
+     * @param directory The instance of the configuration directory.
+     * @return The file.
+     * Null, if there are no files in the directory.
+     */
+    public static @Nullable File getFile(@NotNull String key, @NotNull ConfigurationDirectory directory) {
+        Map<String, File> routes = Storage.getRoutes(directory);
+        File file = routes.get(key);
+        if (file != null && file.exists()) return file;
+
         // If it was not found, use the first file.
-        File file = directory.getFiles().get(0);
-        if (file == null) {
+        List<File> files = directory.getFiles();
+        if (files.isEmpty()) {
             ConsoleManager.error("There are no files in the directory where default should be " + directory.getDefaultFileName());
             return null;
         }
 
+        routes.put(key, files.get(0));
+        return files.get(0);
+    }
+
+    /**
+     * Used to update the routing table after a single file has changed.
+     *
+     * @param file      The file that changed.
+     * @param keys      The keys now in the file.
+     * @param directory The instance of the configuration directory.
+     * @return The keys that were routed to the file before it changed.
+     */
+    public static @NotNull Set<String> reroute(@NotNull File file, @NotNull Collection<String> keys, @NotNull ConfigurationDirectory directory) {
+        Map<String, File> routes = Storage.getRoutes(directory);
+        Set<String> previousKeys = new HashSet<>();
+
+        for (Map.Entry<String, File> entry : routes.entrySet()) {
+            if (entry.getValue().equals(file)) previousKeys.add(entry.getKey());
+        }
+
+        for (String key : previousKeys) routes.remove(key);
+        for (String key : keys) routes.putIfAbsent(key, file);
+
+        return previousKeys;
+    }
+
+    /**
+     * Used to record that this plugin has saved a file.
+     *
+     * @param file The file that was saved.
+     */
+    public static void markWritten(@NotNull File file) {
+        Storage.writtenMap.put(file.getAbsoluteFile(), file.lastModified());
+    }
+
+    /**
+     * Used to check if a file is unchanged since this plugin last saved it.
+     *
+     * @param file The instance of the file.
+     * @return True if the last change to the file was made by this plugin.
+     */
+    public static boolean isOwnWrite(@NotNull File file) {
+        Long lastModified = Storage.writtenMap.get(file.getAbsoluteFile());
+        return lastModified != null && file.exists() && file.lastModified() == lastModified;
+    }
+
+    /**
+     * Used to remove a key from the routing table
+     * once it has been removed from its file.
+     *
+     * @param key       The instance of the key.
+     * @param directory The instance of the configuration directory.
+     */
+    public static void unroute(@NotNull String key, @NotNull ConfigurationDirectory directory) {
+        Storage.getRoutes(directory).remove(key);
+    }
+
+    /**
+     * Used to get the configuration file instance where the key is saved to.
+     * If this key does not exist in any of the files, it will return the first configuration file.
+     *
+     * @param key       The instance of the key.
+     * @param directory The instance of the configuration directory.
+     * @return The configuration file.
+     * Null, if there are no configuration files in the directory.
+     */
+    public static @Nullable YamlConfiguration getConfiguration(@NotNull String key, @NotNull ConfigurationDirectory directory) {
+        File file = Storage.getFile(key, directory);
+        if (file == null) return null;
+
         return new YamlConfiguration(file);
     }
 }
@@ -0,0 +1,203 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage;
+
+import com.github.cozyplugins.cozylibrary.ConsoleManager;
+import com.github.cozyplugins.cozylibrary.CozyPlugin;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Represents the executor used for storage input and output.
+ * <p>
+ * Tasks are run one at a time in the order they are submitted,
+ * so a read that was submitted after a write will see the write.
+ * </p>
+ * <li>
+ * The queue is bounded. When it is full, the submitting thread waits
+ * until there is room, so tasks keep their order and memory stays
+ * bounded while the disk catches up. Tasks submitted from the storage
+ * thread itself are run straight away, as waiting would never end.
+ * </li>
+ * <li>
+ * Tasks submitted after {@link StorageExecutor#shutdown()}
+ * are rejected and their futures complete exceptionally.
+ * </li>
+ */
+public final class StorageExecutor {
+
+    /**
+     * The maximum amount of tasks waiting to be run.
+     */
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private static final @NotNull String THREAD_NAME = "CozyTreasureHunt Storage";
+    private static final @NotNull ThreadPoolExecutor executor = StorageExecutor.create();
+
+    /**
+     * Used to get the executor for storage tasks.
+     *
+     * @return The executor.
+     */
+    public static @NotNull Executor getExecutor() {
+        return StorageExecutor.executor;
+    }
+
+    /**
+     * Used to get an executor that runs tasks on the main thread.
+     *
+     * @return The main thread executor.
+     */
+    public static @NotNull Executor getMainThread() {
+        return runnable -> {
+            if (Bukkit.isPrimaryThread()) {
+                runnable.run();
+                return;
+            }
+
+            Bukkit.getScheduler().runTask(CozyPlugin.getPlugin(), runnable);
+        };
+    }
+
+    /**
+     * Used to run a task on the storage executor.
+     *
+     * @param supplier The task.
+     * @param <T>      The type of result.
+     * @return The future result.
+     */
+    public static <T> @NotNull CompletableFuture<T> supply(@NotNull Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, StorageExecutor.getExecutor());
+        } catch (RejectedExecutionException exception) {
+            ConsoleManager.warn("A storage task was submitted after the storage executor was stopped.");
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Used to run a task on the storage executor.
+     *
+     * @param runnable The task.
+     * @return The future that completes when the task is done.
+     */
+    public static @NotNull CompletableFuture<Void> run(@NotNull Runnable runnable) {
+        try {
+            return CompletableFuture.runAsync(runnable, StorageExecutor.getExecutor());
+        } catch (RejectedExecutionException exception) {
+            ConsoleManager.warn("A storage task was submitted after the storage executor was stopped.");
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Used to complete a future on the main thread.
+     * Callbacks added to the returned future will be
+     * called on the main thread.
+     *
+     * @param future The future.
+     * @param <T>    The type of result.
+     * @return The future that completes on the main thread.
+     */
+    public static <T> @NotNull CompletableFuture<T> toMainThread(@NotNull CompletableFuture<T> future) {
+        CompletableFuture<T> mainFuture = new CompletableFuture<>();
+
+        future.whenComplete((result, exception) -> {
+            try {
+                StorageExecutor.getMainThread().execute(() -> {
+                    if (exception != null) mainFuture.completeExceptionally(exception);
+                    else mainFuture.complete(result);
+                });
+            } catch (IllegalStateException | IllegalArgumentException disabled) {
+                // The plugin is being disabled.
+                mainFuture.completeExceptionally(disabled);
+            }
+        });
+
+        return mainFuture;
+    }
+
+    /**
+     * Used to wait for the submitted tasks to finish
+     * and stop the executor. This is called when the plugin
+     * is disabled, after the last writes were submitted.
+     */
+    public static void shutdown() {
+        StorageExecutor.executor.shutdown();
+
+        try {
+            if (!StorageExecutor.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                ConsoleManager.error("Storage tasks did not finish within 30 seconds. Some data may not have been saved.");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Used to create the executor.
+     *
+     * @return The executor.
+     */
+    private static @NotNull ThreadPoolExecutor create() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(StorageExecutor.QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, StorageExecutor.THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                StorageExecutor::saturated
+        );
+    }
+
+    /**
+     * Used to handle a task that did not fit in the queue.
+     * The submitting thread waits until there is room.
+     *
+     * @param runnable The task.
+     * @param executor The executor.
+     */
+    private static void saturated(@NotNull Runnable runnable, @NotNull ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) throw new RejectedExecutionException("The storage executor was stopped.");
+
+        // Waiting on the storage thread would never end.
+        if (Thread.currentThread().getName().equals(StorageExecutor.THREAD_NAME)) {
+            runnable.run();
+            return;
+        }
+
+        ConsoleManager.warn("The storage queue is full. Waiting for the disk to catch up.");
+
+        try {
+            executor.getQueue().put(runnable);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the storage queue.", exception);
+        }
+
+        // Check if the executor was stopped while waiting.
+        if (executor.isShutdown() && executor.getQueue().remove(runnable)) {
+            throw new RejectedExecutionException("The storage executor was stopped.");
+        }
+    }
+}
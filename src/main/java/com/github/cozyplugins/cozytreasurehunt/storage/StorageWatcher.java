@@ -0,0 +1,227 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage;
+
+import com.github.cozyplugins.cozylibrary.ConsoleManager;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Represents a watcher of the storage directories.
+ * <p>
+ * When a configuration file is changed or deleted outside
+ * the plugin, only that file is passed to the directory's handler
+ * on the main thread, instead of reloading every directory.
+ * </p>
+ * <li>
+ * Changes made by the plugin are ignored
+ * using {@link Storage#isOwnWrite(File)}.
+ * </li>
+ * <li>
+ * Sub directories are also watched, including
+ * sub directories created after starting.
+ * </li>
+ */
+public class StorageWatcher implements Runnable {
+
+    /**
+     * The amount of ticks to wait after a change before
+     * handling it, so a file that is written in several
+     * steps is only handled once.
+     */
+    private static final long DELAY_TICKS = 10L;
+
+    private final @NotNull Plugin plugin;
+    private final @NotNull Map<Path, Consumer<File>> handlerMap;
+    private final @NotNull Map<Path, Consumer<File>> directoryMap;
+    private final @NotNull Set<File> pendingFiles;
+    private @Nullable WatchService service;
+    private @Nullable Thread thread;
+
+    /**
+     * Used to create a storage watcher.
+     *
+     * @param plugin The plugin used to schedule the handlers.
+     */
+    public StorageWatcher(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+        this.handlerMap = new HashMap<>();
+        this.directoryMap = new ConcurrentHashMap<>();
+        this.pendingFiles = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Used to watch a directory.
+     * This should be called before {@link StorageWatcher#start()}.
+     *
+     * @param directory The directory to watch.
+     * @param handler   Called on the main thread with the file that changed.
+     * @return This instance.
+     */
+    public @NotNull StorageWatcher watch(@NotNull File directory, @NotNull Consumer<File> handler) {
+        this.handlerMap.put(directory.getAbsoluteFile().toPath(), handler);
+        return this;
+    }
+
+    /**
+     * Used to start watching the directories.
+     */
+    public void start() {
+        if (this.thread != null) return;
+
+        try {
+            this.service = FileSystems.getDefault().newWatchService();
+
+            for (Map.Entry<Path, Consumer<File>> entry : this.handlerMap.entrySet()) {
+                this.register(this.service, entry.getKey(), entry.getValue());
+            }
+
+        } catch (IOException exception) {
+            ConsoleManager.error("Unable to watch the storage directories for changes.");
+            exception.printStackTrace();
+            this.stop();
+            return;
+        }
+
+        this.thread = new Thread(this, "CozyTreasureHunt Storage Watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Used to stop watching the directories.
+     */
+    public void stop() {
+        if (this.service != null) {
+            try {
+                this.service.close();
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+        }
+
+        if (this.thread != null) this.thread.interrupt();
+
+        this.service = null;
+        this.thread = null;
+        this.directoryMap.clear();
+    }
+
+    /**
+     * Used to register a directory and its sub directories.
+     *
+     * @param service   The watch service.
+     * @param directory The directory to register.
+     * @param handler   The handler of the watched directory it is in.
+     * @throws IOException If the directory cannot be registered.
+     */
+    private void register(@NotNull WatchService service, @NotNull Path directory, @NotNull Consumer<File> handler) throws IOException {
+        if (!Files.isDirectory(directory)) return;
+
+        try (Stream<Path> stream = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) stream.filter(Files::isDirectory)::iterator) {
+                path.register(service,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE
+                );
+                this.directoryMap.put(path, handler);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        WatchService service = this.service;
+        if (service == null) return;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException exception) {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            Consumer<File> handler = this.directoryMap.get(directory);
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (handler == null) break;
+                if (!(event.context() instanceof Path name)) continue;
+                Path path = directory.resolve(name);
+
+                // Check if a sub directory was created.
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                    try {
+                        this.register(service, path, handler);
+                    } catch (IOException | ClosedWatchServiceException exception) {
+                        ConsoleManager.warn("Unable to watch the directory " + path + " for changes.");
+                    }
+                    continue;
+                }
+
+                if (!name.toString().endsWith(".yml")) continue;
+
+                this.schedule(path.toFile(), handler);
+            }
+
+            key.reset();
+        }
+    }
+
+    /**
+     * Used to handle a changed file on the main thread.
+     * A file that is already waiting to be handled is not scheduled again.
+     *
+     * @param file    The file that changed.
+     * @param handler The directory's handler.
+     */
+    private void schedule(@NotNull File file, @NotNull Consumer<File> handler) {
+        if (!this.pendingFiles.add(file)) return;
+
+        try {
+            Bukkit.getScheduler().runTaskLater(this.plugin, () -> {
+                this.pendingFiles.remove(file);
+
+                // Check if the plugin made this change.
+                if (Storage.isOwnWrite(file)) return;
+
+                handler.accept(file);
+            }, StorageWatcher.DELAY_TICKS);
+
+        } catch (IllegalStateException exception) {
+            // The plugin is being disabled.
+            this.pendingFiles.remove(file);
+        }
+    }
+}
@@ -27,9 +27,8 @@ import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.io.File;
+import java.util.*;
 
 
 /**
@@ -51,6 +50,7 @@ public final class TreasureStorage {
      */
     public static void load() {
         TreasureStorage.storage.reload();
+        Storage.index(TreasureStorage.storage);
     }
 
     /**
@@ -61,15 +61,76 @@ public final class TreasureStorage {
     public static void insert(@NotNull Treasure treasure) {
         UUID identifier = treasure.getIdentifier();
         ConfigurationSection section = treasure.convert();
-        YamlConfiguration configuration = Storage.getConfiguration(identifier.toString(), TreasureStorage.storage);
+        File file = Storage.getFile(identifier.toString(), TreasureStorage.storage);
 
-        if (configuration == null) return;
+        if (file == null) return;
 
         // Save it to the file.
+        YamlConfiguration configuration = new YamlConfiguration(file);
         configuration.load();
         configuration.set(identifier.toString(), section.getMap());
-        configuration.save();
-        TreasureStorage.load();
+        GroupCommit.save(configuration, file);
+
+        // Update the treasure in memory instead of reading every file again.
+        TreasureStorage.storage.set(identifier.toString(), new LinkedHashMap<>(section.getMap()));
+        LocationStorage.refresh(identifier);
+    }
+
+    /**
+     * Used to reload the treasure after a single treasure file was
+     * changed or deleted outside the plugin. Only the locations of
+     * the treasure types in this file are refreshed.
+     *
+     * @param file The treasure file that changed.
+     */
+    public static void reloadFile(@NotNull File file) {
+        YamlConfiguration configuration = new YamlConfiguration(file);
+        Set<String> keys = new HashSet<>();
+        if (file.exists()) {
+            configuration.load();
+            keys.addAll(configuration.getKeys());
+        }
+
+        Set<String> changedKeys = Storage.reroute(file, keys, TreasureStorage.storage);
+        changedKeys.addAll(keys);
+
+        // Update only the treasure types that were in this file.
+        for (String key : changedKeys) {
+            if (keys.contains(key) && file.equals(Storage.getFile(key, TreasureStorage.storage))) {
+                TreasureStorage.storage.set(key, new LinkedHashMap<>(configuration.getSection(key).getMap()));
+                continue;
+            }
+
+            TreasureStorage.reloadKey(key);
+        }
+
+        for (String key : changedKeys) {
+            try {
+                LocationStorage.refresh(UUID.fromString(key));
+            } catch (IllegalArgumentException exception) {
+                ConsoleManager.warn("Treasure identifier " + key + " in " + file.getName() + " is not a valid uuid.");
+            }
+        }
+    }
+
+    /**
+     * Used to update a treasure in memory from the file
+     * it is saved in, or remove it if it is no longer saved.
+     *
+     * @param key The treasure's identifier.
+     */
+    private static void reloadKey(@NotNull String key) {
+        YamlConfiguration configuration = Storage.contains(key, TreasureStorage.storage)
+                ? Storage.getConfiguration(key, TreasureStorage.storage) : null;
+
+        if (configuration == null) {
+            TreasureStorage.storage.set(key, null);
+            return;
+        }
+
+        configuration.load();
+        Map<String, Object> map = configuration.getSection(key).getMap();
+        TreasureStorage.storage.set(key, map.isEmpty() ? null : new LinkedHashMap<>(map));
     }
 
     /**
@@ -142,17 +203,21 @@ public final class TreasureStorage {
      * @param identifier The treasure's identifier.
      */
     public static void delete(UUID identifier) {
-        YamlConfiguration configuration = Storage.getConfiguration(identifier.toString(), TreasureStorage.storage);
+        File file = Storage.contains(identifier.toString(), TreasureStorage.storage)
+                ? Storage.getFile(identifier.toString(), TreasureStorage.storage) : null;
 
-        if (configuration == null) {
+        if (file == null) {
             ConsoleManager.warn("Unable to delete treasure with identifier " + identifier);
             return;
         }
 
+        YamlConfiguration configuration = new YamlConfiguration(file);
         configuration.load();
         configuration.set(identifier.toString(), null);
-        configuration.save();
-        TreasureStorage.load();
+        GroupCommit.save(configuration, file);
+        Storage.unroute(identifier.toString(), TreasureStorage.storage);
+        TreasureStorage.storage.set(identifier.toString(), null);
+        LocationStorage.refresh(identifier);
     }
 
     /**
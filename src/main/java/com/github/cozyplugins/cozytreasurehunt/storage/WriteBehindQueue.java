@@ -0,0 +1,194 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage;
+
+import com.github.cozyplugins.cozylibrary.configuration.ConfigurationDirectory;
+import com.github.smuddgge.squishyconfiguration.implementation.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Represents a queue of pending writes to a configuration directory.
+ * <p>
+ * Writes to the same key are coalesced, so only the latest
+ * value of a key is written. The queue is flushed in batches,
+ * loading and saving each changed file once.
+ * </p>
+ * <li>
+ * Writes can be queued from the main thread and
+ * written from another thread. Only one thread
+ * should write at a time.
+ * </li>
+ */
+public class WriteBehindQueue {
+
+    private final @NotNull ConfigurationDirectory directory;
+
+    /**
+     * The pending writes.
+     * A null value means the key should be removed.
+     */
+    private @NotNull Map<String, Map<String, Object>> pendingMap;
+
+    /**
+     * Used to create a write behind queue.
+     *
+     * @param directory The configuration directory to write to.
+     */
+    public WriteBehindQueue(@NotNull ConfigurationDirectory directory) {
+        this.directory = directory;
+        this.pendingMap = new LinkedHashMap<>();
+    }
+
+    /**
+     * Used to queue a key to be set.
+     * This will replace any pending write to the same key.
+     *
+     * @param key   The instance of the key.
+     * @param value The value to set.
+     *              Null if the key should be removed.
+     */
+    public synchronized void set(@NotNull String key, @Nullable Map<String, Object> value) {
+        this.pendingMap.put(key, value);
+    }
+
+    /**
+     * Used to get the amount of keys waiting to be written.
+     *
+     * @return The amount of pending keys.
+     */
+    public synchronized int getAmountPending() {
+        return this.pendingMap.size();
+    }
+
+    /**
+     * Used to remove all pending writes
+     * without writing them.
+     */
+    public synchronized void clear() {
+        this.pendingMap = new LinkedHashMap<>();
+    }
+
+    /**
+     * Used to put writes that failed back into the queue.
+     * Keys that were set again since they were drained
+     * keep their newer value.
+     *
+     * @param failedMap The writes that failed.
+     */
+    public synchronized void requeue(@NotNull Map<String, Map<String, Object>> failedMap) {
+        for (Map.Entry<String, Map<String, Object>> entry : failedMap.entrySet()) {
+            if (this.pendingMap.containsKey(entry.getKey())) continue;
+            this.pendingMap.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Used to take all the pending writes out of the queue.
+     * They should then be passed to {@link WriteBehindQueue#write(Map)}.
+     *
+     * @return The pending writes.
+     */
+    public synchronized @NotNull Map<String, Map<String, Object>> drain() {
+        Map<String, Map<String, Object>> pending = this.pendingMap;
+        this.pendingMap = new LinkedHashMap<>();
+        return pending;
+    }
+
+    /**
+     * Used to write drained keys to their files.
+     * Each changed file is loaded and saved once,
+     * and the files are committed together.
+     * The keys of files that could not be written
+     * are put back into the queue.
+     *
+     * @param toWrite The writes taken from {@link WriteBehindQueue#drain()}.
+     * @return True if every file was written.
+     */
+    public boolean write(@NotNull Map<String, Map<String, Object>> toWrite) {
+        if (toWrite.isEmpty()) return true;
+
+        // Group the pending keys by the file they are routed to.
+        Map<File, List<String>> fileMap = new HashMap<>();
+        Map<String, Map<String, Object>> failedMap = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : toWrite.entrySet()) {
+
+            // Check if removing a key that was never saved.
+            if (entry.getValue() == null && !Storage.contains(entry.getKey(), this.directory)) continue;
+
+            File file = Storage.getFile(entry.getKey(), this.directory);
+            if (file == null) {
+                failedMap.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+
+            fileMap.computeIfAbsent(file, key -> new ArrayList<>()).add(entry.getKey());
+        }
+
+        Map<File, CompletableFuture<Void>> futureMap = new HashMap<>();
+        for (Map.Entry<File, List<String>> entry : fileMap.entrySet()) {
+            YamlConfiguration configuration = new YamlConfiguration(entry.getKey());
+            configuration.load();
+
+            for (String key : entry.getValue()) {
+                configuration.set(key, toWrite.get(key));
+            }
+
+            futureMap.put(entry.getKey(), GroupCommit.write(entry.getKey(), GroupCommit.toBytes(configuration)));
+        }
+
+        // Wait for the files to be written.
+        // Files that could not be written have already been logged.
+        for (Map.Entry<File, CompletableFuture<Void>> entry : futureMap.entrySet()) {
+            List<String> keyList = fileMap.get(entry.getKey());
+
+            try {
+                entry.getValue().join();
+            } catch (CompletionException | CancellationException exception) {
+                for (String key : keyList) failedMap.put(key, toWrite.get(key));
+                continue;
+            }
+
+            // Remove the keys that were deleted from the routing table.
+            for (String key : keyList) {
+                if (toWrite.get(key) == null) Storage.unroute(key, this.directory);
+            }
+        }
+
+        if (failedMap.isEmpty()) return true;
+
+        this.requeue(failedMap);
+        return false;
+    }
+
+    /**
+     * Used to write all pending keys to their files.
+     *
+     * @return True if every file was written.
+     */
+    public boolean flush() {
+        return this.write(this.drain());
+    }
+}
@@ -0,0 +1,188 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.index;
+
+import java.util.Arrays;
+
+/**
+ * Represents the chunks of a single world that contain treasure locations.
+ * <p>
+ * Chunks are stored as packed long keys in an open addressing
+ * hash table, so checking a chunk does not box or allocate.
+ * </p>
+ */
+public class ChunkIndex {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] counts;
+    private int size;
+
+    /**
+     * Used to create an empty chunk index.
+     */
+    public ChunkIndex() {
+        this.keys = new long[16];
+        this.counts = new int[16];
+        this.size = 0;
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    /**
+     * Used to check if a chunk contains at least one treasure location.
+     *
+     * @param chunkX The chunk x cord.
+     * @param chunkZ The chunk z cord.
+     * @return True if the chunk contains a treasure location.
+     */
+    public boolean contains(int chunkX, int chunkZ) {
+        long key = ChunkIndex.getKey(chunkX, chunkZ);
+        int mask = this.keys.length - 1;
+        int slot = ChunkIndex.hash(key) & mask;
+
+        while (this.keys[slot] != EMPTY) {
+            if (this.keys[slot] == key) return true;
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    /**
+     * Used to add a treasure location to a chunk.
+     *
+     * @param chunkX The chunk x cord.
+     * @param chunkZ The chunk z cord.
+     */
+    public void add(int chunkX, int chunkZ) {
+        long key = ChunkIndex.getKey(chunkX, chunkZ);
+        int mask = this.keys.length - 1;
+        int slot = ChunkIndex.hash(key) & mask;
+
+        while (this.keys[slot] != EMPTY) {
+            if (this.keys[slot] == key) {
+                this.counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        this.keys[slot] = key;
+        this.counts[slot] = 1;
+        this.size++;
+
+        // Keep the load factor under a half.
+        if (this.size * 2 > this.keys.length) this.resize(this.keys.length * 2);
+    }
+
+    /**
+     * Used to remove a treasure location from a chunk.
+     * When the chunk has no more locations it will be removed.
+     *
+     * @param chunkX The chunk x cord.
+     * @param chunkZ The chunk z cord.
+     */
+    public void remove(int chunkX, int chunkZ) {
+        long key = ChunkIndex.getKey(chunkX, chunkZ);
+        int mask = this.keys.length - 1;
+        int slot = ChunkIndex.hash(key) & mask;
+
+        while (this.keys[slot] != key) {
+            if (this.keys[slot] == EMPTY) return;
+            slot = (slot + 1) & mask;
+        }
+
+        this.counts[slot]--;
+        if (this.counts[slot] > 0) return;
+
+        // Shift the following entries back so lookups never stop early.
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (this.keys[next] != EMPTY) {
+            int ideal = ChunkIndex.hash(this.keys[next]) & mask;
+
+            // Check if the entry can be moved into the gap.
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                this.keys[gap] = this.keys[next];
+                this.counts[gap] = this.counts[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        this.keys[gap] = EMPTY;
+        this.counts[gap] = 0;
+        this.size--;
+    }
+
+    /**
+     * Used to get the amount of chunks that contain treasure locations.
+     *
+     * @return The amount of chunks.
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Used to check if there are no chunks in this index.
+     *
+     * @return True if the index is empty.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = this.keys;
+        int[] oldCounts = this.counts;
+
+        this.keys = new long[capacity];
+        this.counts = new int[capacity];
+        Arrays.fill(this.keys, EMPTY);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+
+            int slot = ChunkIndex.hash(oldKeys[i]) & mask;
+            while (this.keys[slot] != EMPTY) slot = (slot + 1) & mask;
+
+            this.keys[slot] = oldKeys[i];
+            this.counts[slot] = oldCounts[i];
+        }
+    }
+
+    /**
+     * Used to pack chunk cords into a single long.
+     *
+     * @param chunkX The chunk x cord.
+     * @param chunkZ The chunk z cord.
+     * @return The packed chunk key.
+     */
+    public static long getKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.index;
+
+import com.github.cozyplugins.cozytreasurehunt.storage.ConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents the amount of treasure a player
+ * has found on each of the last days.
+ * <p>
+ * The amounts are kept in a ring with a slot for each day,
+ * so recording a find and getting the amount found in a
+ * period does not depend on how long the player has played.
+ * A slot is reused once its day is too old to be kept.
+ * </p>
+ * <li>
+ * Days are counted as epoch days in the time zone from the config file.
+ * </li>
+ */
+public class FoundRing {
+
+    /**
+     * The amount of days that are kept.
+     */
+    public static final int DAYS = 7;
+
+    private final @NotNull long[] dayArray;
+    private final @NotNull int[] amountArray;
+
+    /**
+     * Used to create an empty ring.
+     */
+    public FoundRing() {
+        this.dayArray = new long[FoundRing.DAYS];
+        this.amountArray = new int[FoundRing.DAYS];
+        Arrays.fill(this.dayArray, Long.MIN_VALUE);
+    }
+
+    /**
+     * Used to add to the amount found on a day.
+     *
+     * @param day    The epoch day.
+     * @param amount The amount to add.
+     */
+    public void add(long day, int amount) {
+        int slot = (int) Math.floorMod(day, (long) FoundRing.DAYS);
+
+        // Check if the slot holds an older day.
+        if (this.dayArray[slot] != day) {
+            if (this.dayArray[slot] > day) return;
+            this.dayArray[slot] = day;
+            this.amountArray[slot] = 0;
+        }
+
+        this.amountArray[slot] += amount;
+    }
+
+    /**
+     * Used to get the amount found in the days
+     * leading up to and including a day.
+     *
+     * @param day  The last epoch day.
+     * @param days The amount of days.
+     * @return The amount found.
+     */
+    public int getAmount(long day, int days) {
+        int amount = 0;
+
+        for (int slot = 0; slot < FoundRing.DAYS; slot++) {
+            long slotDay = this.dayArray[slot];
+            if (slotDay > day || slotDay <= day - days) continue;
+            amount += this.amountArray[slot];
+        }
+
+        return amount;
+    }
+
+    /**
+     * Used to check if anything was found in the
+     * days leading up to and including a day.
+     *
+     * @param day The last epoch day.
+     * @return True if nothing was found.
+     */
+    public boolean isEmpty(long day) {
+        return this.getAmount(day, FoundRing.DAYS) == 0;
+    }
+
+    /**
+     * Used to copy the ring.
+     *
+     * @return A new instance of the ring.
+     */
+    public @NotNull FoundRing copy() {
+        FoundRing ring = new FoundRing();
+        System.arraycopy(this.dayArray, 0, ring.dayArray, 0, FoundRing.DAYS);
+        System.arraycopy(this.amountArray, 0, ring.amountArray, 0, FoundRing.DAYS);
+        return ring;
+    }
+
+    /**
+     * Used to convert the ring to a map that can be saved.
+     * Days older than the days that are kept are not included.
+     *
+     * @param day The current epoch day.
+     * @return The map of epoch days to the amount found.
+     */
+    public @NotNull Map<String, Integer> toMap(long day) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+
+        for (int slot = 0; slot < FoundRing.DAYS; slot++) {
+            long slotDay = this.dayArray[slot];
+            if (slotDay > day || slotDay <= day - FoundRing.DAYS) continue;
+            if (this.amountArray[slot] == 0) continue;
+            map.put(Long.toString(slotDay), this.amountArray[slot]);
+        }
+
+        return map;
+    }
+
+    /**
+     * Used to create a ring from a saved map.
+     *
+     * @param map The map of epoch days to the amount found.
+     *            If null, the ring will be empty.
+     * @return The ring.
+     */
+    public static @NotNull FoundRing fromMap(@Nullable Map<?, ?> map) {
+        FoundRing ring = new FoundRing();
+        if (map == null) return ring;
+
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getValue() instanceof Number amount)) continue;
+
+            try {
+                ring.add(Long.parseLong(String.valueOf(entry.getKey())), amount.intValue());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
+        return ring;
+    }
+
+    /**
+     * Used to get the current epoch day
+     * in the time zone from the config file.
+     *
+     * @return The current epoch day.
+     */
+    public static long today() {
+        return FoundRing.today(ConfigFile.getClock());
+    }
+
+    /**
+     * Used to get the current epoch day using a clock.
+     *
+     * @param clock The clock, which includes the time zone.
+     * @return The current epoch day.
+     */
+    public static long today(@NotNull Clock clock) {
+        return LocalDate.now(clock).toEpochDay();
+    }
+}
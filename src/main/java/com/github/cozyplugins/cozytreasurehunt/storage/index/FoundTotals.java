@@ -0,0 +1,188 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.index;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Represents the amount of treasure found by every player.
+ * <p>
+ * The totals are increased as treasure is found, so
+ * they can be read without loading every player's data.
+ * </p>
+ * <li>
+ * The amounts of each player are kept as an array with a
+ * slot for each treasure name, so a player's record can be
+ * replaced by applying the difference to the totals.
+ * </li>
+ * <li>
+ * The methods can be called from any thread.
+ * </li>
+ */
+public class FoundTotals {
+
+    private final @NotNull Map<String, Integer> treasureMap;
+    private final @NotNull Map<String, Integer> slotMap;
+    private final @NotNull List<String> slotList;
+    private final @NotNull Map<UUID, int[]> playerMap;
+    private int total;
+
+    /**
+     * Used to create empty totals.
+     */
+    public FoundTotals() {
+        this.treasureMap = new HashMap<>();
+        this.slotMap = new HashMap<>();
+        this.slotList = new ArrayList<>();
+        this.playerMap = new HashMap<>();
+        this.total = 0;
+    }
+
+    /**
+     * Used to increase the amount of a treasure found by a player.
+     *
+     * @param playerUuid   The player's uuid.
+     * @param treasureName The name of the treasure.
+     */
+    public synchronized void increase(@NotNull UUID playerUuid, @NotNull String treasureName) {
+        int slot = this.getSlot(treasureName);
+        int[] amounts = this.getAmounts(playerUuid, slot);
+        amounts[slot]++;
+
+        this.treasureMap.merge(treasureName, 1, Integer::sum);
+        this.total++;
+    }
+
+    /**
+     * Used to replace the amounts a player has found.
+     * The difference from the player's previous
+     * amounts is applied to the totals.
+     *
+     * @param playerUuid    The player's uuid.
+     * @param treasureFound The map of treasure names to the amount found.
+     */
+    public synchronized void set(@NotNull UUID playerUuid, @NotNull Map<String, Integer> treasureFound) {
+        int[] previous = this.playerMap.remove(playerUuid);
+
+        // Remove the player's previous amounts.
+        if (previous != null) {
+            for (int slot = 0; slot < previous.length; slot++) {
+                if (previous[slot] != 0) this.add(this.slotList.get(slot), -previous[slot]);
+            }
+        }
+
+        for (Map.Entry<String, Integer> entry : treasureFound.entrySet()) {
+            int amount = entry.getValue();
+            if (amount == 0) continue;
+
+            int slot = this.getSlot(entry.getKey());
+            this.getAmounts(playerUuid, slot)[slot] = amount;
+            this.add(entry.getKey(), amount);
+        }
+    }
+
+    /**
+     * Used to get the amount of treasure found in total.
+     *
+     * @return The amount of treasure found.
+     */
+    public synchronized int getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Used to get the amount of a treasure found.
+     *
+     * @param treasureName The name of the treasure.
+     * @return The amount of the treasure found.
+     */
+    public synchronized int getTotal(@NotNull String treasureName) {
+        return this.treasureMap.getOrDefault(treasureName, 0);
+    }
+
+    /**
+     * Used to set every total to zero
+     * and forget the amounts of every player.
+     */
+    public synchronized void clear() {
+        this.slotMap.clear();
+        this.slotList.clear();
+        this.playerMap.clear();
+        this.treasureMap.clear();
+        this.total = 0;
+    }
+
+    /**
+     * Used to add to the total of a treasure.
+     *
+     * @param treasureName The name of the treasure.
+     * @param amount       The amount to add. This can be negative.
+     */
+    private void add(@NotNull String treasureName, int amount) {
+        int treasureTotal = this.treasureMap.getOrDefault(treasureName, 0) + amount;
+        if (treasureTotal == 0) this.treasureMap.remove(treasureName);
+        else this.treasureMap.put(treasureName, treasureTotal);
+
+        this.total += amount;
+    }
+
+    /**
+     * Used to get the slot of a treasure name
+     * in the arrays of each player's amounts.
+     *
+     * @param treasureName The name of the treasure.
+     * @return The treasure's slot.
+     */
+    private int getSlot(@NotNull String treasureName) {
+        Integer slot = this.slotMap.get(treasureName);
+        if (slot != null) return slot;
+
+        this.slotList.add(treasureName);
+        this.slotMap.put(treasureName, this.slotList.size() - 1);
+        return this.slotList.size() - 1;
+    }
+
+    /**
+     * Used to get a player's amounts with room for a slot.
+     *
+     * @param playerUuid The player's uuid.
+     * @param slot       The slot that is needed.
+     * @return The player's amounts.
+     */
+    private @NotNull int[] getAmounts(@NotNull UUID playerUuid, int slot) {
+        int[] amounts = this.playerMap.get(playerUuid);
+
+        if (amounts == null) {
+            amounts = new int[slot + 1];
+            this.playerMap.put(playerUuid, amounts);
+        } else if (amounts.length <= slot) {
+            amounts = Arrays.copyOf(amounts, slot + 1);
+            this.playerMap.put(playerUuid, amounts);
+        }
+
+        return amounts;
+    }
+}
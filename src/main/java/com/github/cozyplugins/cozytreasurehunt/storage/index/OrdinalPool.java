@@ -0,0 +1,115 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Represents a set of location ordinals that
+ * a random ordinal can be picked from.
+ * <p>
+ * The ordinals are kept in a dense array with a map to
+ * each ordinal's position. Adding, removing and picking
+ * a random ordinal do not depend on the size of the pool.
+ * </p>
+ */
+public class OrdinalPool {
+
+    private int[] ordinals;
+    private int size;
+    private final Map<Integer, Integer> positionMap;
+
+    /**
+     * Used to create an empty ordinal pool.
+     */
+    public OrdinalPool() {
+        this.ordinals = new int[8];
+        this.size = 0;
+        this.positionMap = new HashMap<>();
+    }
+
+    /**
+     * Used to get the amount of ordinals in the pool.
+     *
+     * @return The amount of ordinals.
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Used to check if the pool contains an ordinal.
+     *
+     * @param ordinal The location's ordinal.
+     * @return True if the ordinal is in the pool.
+     */
+    public boolean contains(int ordinal) {
+        return this.positionMap.containsKey(ordinal);
+    }
+
+    /**
+     * Used to add an ordinal to the pool.
+     *
+     * @param ordinal The location's ordinal.
+     */
+    public void add(int ordinal) {
+        if (this.positionMap.containsKey(ordinal)) return;
+
+        if (this.size == this.ordinals.length) {
+            this.ordinals = Arrays.copyOf(this.ordinals, this.ordinals.length * 2);
+        }
+
+        this.ordinals[this.size] = ordinal;
+        this.positionMap.put(ordinal, this.size);
+        this.size++;
+    }
+
+    /**
+     * Used to remove an ordinal from the pool.
+     * The last ordinal is moved into its position.
+     *
+     * @param ordinal The location's ordinal.
+     */
+    public void remove(int ordinal) {
+        Integer position = this.positionMap.remove(ordinal);
+        if (position == null) return;
+
+        this.size--;
+        if (position == this.size) return;
+
+        int last = this.ordinals[this.size];
+        this.ordinals[position] = last;
+        this.positionMap.put(last, position);
+    }
+
+    /**
+     * Used to pick a random ordinal from the pool.
+     * The ordinal is not removed.
+     *
+     * @return The ordinal.
+     * -1 if the pool is empty.
+     */
+    public int getRandom() {
+        if (this.size == 0) return -1;
+        return this.ordinals[ThreadLocalRandom.current().nextInt(this.size)];
+    }
+}
@@ -0,0 +1,231 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.index;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Represents a set of location ordinals.
+ * <p>
+ * The ordinals are kept in a bitmap, so checking, adding
+ * and removing an ordinal do not depend on the size of the set.
+ * The set is saved as a short base64 string.
+ * </p>
+ * <li>
+ * Sets with only a few ordinals are saved as the gaps between
+ * the ordinals, and other sets are saved as the bitmap,
+ * depending on which is smaller.
+ * </li>
+ */
+public class OrdinalSet {
+
+    private static final byte BITMAP = 0;
+    private static final byte GAPS = 1;
+
+    private final @NotNull BitSet bitSet;
+
+    /**
+     * Used to create an empty ordinal set.
+     */
+    public OrdinalSet() {
+        this.bitSet = new BitSet();
+    }
+
+    /**
+     * Used to create an ordinal set from a bitmap.
+     *
+     * @param bitSet The bitmap of ordinals.
+     */
+    private OrdinalSet(@NotNull BitSet bitSet) {
+        this.bitSet = bitSet;
+    }
+
+    /**
+     * Used to check if the set contains an ordinal.
+     *
+     * @param ordinal The ordinal.
+     * @return True if the ordinal is in the set.
+     */
+    public boolean contains(int ordinal) {
+        return ordinal >= 0 && this.bitSet.get(ordinal);
+    }
+
+    /**
+     * Used to add an ordinal to the set.
+     *
+     * @param ordinal The ordinal.
+     * @return True if the ordinal was not already in the set.
+     */
+    public boolean add(int ordinal) {
+        if (ordinal < 0 || this.bitSet.get(ordinal)) return false;
+
+        this.bitSet.set(ordinal);
+        return true;
+    }
+
+    /**
+     * Used to remove an ordinal from the set.
+     *
+     * @param ordinal The ordinal.
+     * @return True if the ordinal was in the set.
+     */
+    public boolean remove(int ordinal) {
+        if (!this.contains(ordinal)) return false;
+
+        this.bitSet.clear(ordinal);
+        return true;
+    }
+
+    /**
+     * Used to get the amount of ordinals in the set.
+     *
+     * @return The amount of ordinals.
+     */
+    public int getSize() {
+        return this.bitSet.cardinality();
+    }
+
+    /**
+     * Used to check if the set is empty.
+     *
+     * @return True if there are no ordinals.
+     */
+    public boolean isEmpty() {
+        return this.bitSet.isEmpty();
+    }
+
+    /**
+     * Used to call a consumer with each ordinal in ascending order.
+     *
+     * @param consumer The consumer.
+     */
+    public void forEach(@NotNull IntConsumer consumer) {
+        this.bitSet.stream().forEach(consumer);
+    }
+
+    /**
+     * Used to get the ordinals in ascending order.
+     *
+     * @return The array of ordinals.
+     */
+    public int[] toArray() {
+        return this.bitSet.stream().toArray();
+    }
+
+    /**
+     * Used to copy the set.
+     *
+     * @return A new ordinal set with the same ordinals.
+     */
+    public @NotNull OrdinalSet copy() {
+        return new OrdinalSet((BitSet) this.bitSet.clone());
+    }
+
+    /**
+     * Used to convert the set into a string that can be saved.
+     *
+     * @return The encoded set.
+     */
+    public @NotNull String encode() {
+        byte[] bitmap = this.bitSet.toByteArray();
+
+        // Write each ordinal as the gap from the previous ordinal.
+        ByteArrayOutputStream gaps = new ByteArrayOutputStream();
+        int previous = -1;
+        for (int ordinal = this.bitSet.nextSetBit(0); ordinal >= 0; ordinal = this.bitSet.nextSetBit(ordinal + 1)) {
+            OrdinalSet.writeVarInt(gaps, ordinal - previous - 1);
+            previous = ordinal;
+            if (gaps.size() >= bitmap.length) break;
+        }
+
+        boolean useGaps = gaps.size() < bitmap.length;
+        byte[] data = useGaps ? gaps.toByteArray() : bitmap;
+
+        byte[] bytes = new byte[data.length + 1];
+        bytes[0] = useGaps ? OrdinalSet.GAPS : OrdinalSet.BITMAP;
+        System.arraycopy(data, 0, bytes, 1, data.length);
+        return Base64.getEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Used to convert a saved string back into a set.
+     *
+     * @param encoded The string from {@link OrdinalSet#encode()}.
+     * @return The ordinal set.
+     * An empty set if the string is null or invalid.
+     */
+    public static @NotNull OrdinalSet decode(@Nullable String encoded) {
+        if (encoded == null || encoded.isEmpty()) return new OrdinalSet();
+
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(encoded);
+        } catch (IllegalArgumentException exception) {
+            return new OrdinalSet();
+        }
+        if (bytes.length == 0) return new OrdinalSet();
+
+        if (bytes[0] == OrdinalSet.BITMAP) {
+            return new OrdinalSet(BitSet.valueOf(Arrays.copyOfRange(bytes, 1, bytes.length)));
+        }
+
+        OrdinalSet set = new OrdinalSet();
+        int position = 1;
+        int previous = -1;
+
+        while (position < bytes.length) {
+            int gap = 0;
+            int shift = 0;
+            byte value;
+
+            do {
+                if (position >= bytes.length || shift > 28) return set;
+                value = bytes[position++];
+                gap |= (value & 0x7F) << shift;
+                shift += 7;
+            } while ((value & 0x80) != 0);
+
+            previous = previous + gap + 1;
+            set.add(previous);
+        }
+
+        return set;
+    }
+
+    /**
+     * Used to write a positive number using as few bytes as possible.
+     *
+     * @param stream The stream to write to.
+     * @param value  The number.
+     */
+    private static void writeVarInt(@NotNull ByteArrayOutputStream stream, int value) {
+        while ((value & ~0x7F) != 0) {
+            stream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        stream.write(value);
+    }
+}
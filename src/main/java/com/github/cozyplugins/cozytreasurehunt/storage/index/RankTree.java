@@ -0,0 +1,304 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.index;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Represents players ordered by a score.
+ * <p>
+ * The players are kept in a balanced tree that knows the size
+ * of each subtree, so getting the player at a rank and getting
+ * the rank of a player only take a logarithmic amount of steps.
+ * </p>
+ * <li>
+ * Higher scores are ranked first. Players with the same score
+ * are ordered by their uuid, so ties always have the same order.
+ * </li>
+ * <li>
+ * Players with a score of zero are not ranked.
+ * </li>
+ */
+public class RankTree {
+
+    /**
+     * Represents a player in the tree.
+     */
+    private static class Node {
+
+        private final @NotNull UUID playerUuid;
+        private final int score;
+        private final int priority;
+        private int size;
+        private @Nullable Node left;
+        private @Nullable Node right;
+
+        private Node(@NotNull UUID playerUuid, int score) {
+            this.playerUuid = playerUuid;
+            this.score = score;
+            this.priority = ThreadLocalRandom.current().nextInt();
+            this.size = 1;
+        }
+    }
+
+    private final @NotNull Map<UUID, Integer> scoreMap;
+    private @Nullable Node root;
+
+    /**
+     * Used to create an empty rank tree.
+     */
+    public RankTree() {
+        this.scoreMap = new HashMap<>();
+        this.root = null;
+    }
+
+    /**
+     * Used to get the amount of ranked players.
+     *
+     * @return The amount of players.
+     */
+    public int getSize() {
+        return RankTree.size(this.root);
+    }
+
+    /**
+     * Used to get a player's score.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The player's score.
+     */
+    public int getScore(@NotNull UUID playerUuid) {
+        return this.scoreMap.getOrDefault(playerUuid, 0);
+    }
+
+    /**
+     * Used to set a player's score.
+     *
+     * @param playerUuid The player's uuid.
+     * @param score      The player's score.
+     *                   If zero or less the player is removed.
+     */
+    public void set(@NotNull UUID playerUuid, int score) {
+        Integer previous = this.scoreMap.remove(playerUuid);
+        if (previous != null) this.root = RankTree.remove(this.root, playerUuid, previous);
+        if (score <= 0) return;
+
+        this.scoreMap.put(playerUuid, score);
+        Node[] parts = RankTree.split(this.root, playerUuid, score);
+        this.root = RankTree.merge(RankTree.merge(parts[0], new Node(playerUuid, score)), parts[1]);
+    }
+
+    /**
+     * Used to add to a player's score.
+     *
+     * @param playerUuid The player's uuid.
+     * @param amount     The amount to add.
+     */
+    public void add(@NotNull UUID playerUuid, int amount) {
+        this.set(playerUuid, this.getScore(playerUuid) + amount);
+    }
+
+    /**
+     * Used to get the player at a rank.
+     *
+     * @param rank The rank, where 1 is first place.
+     * @return The player's uuid.
+     * Null if there is no player at this rank.
+     */
+    public @Nullable UUID get(int rank) {
+        if (rank < 1 || rank > this.getSize()) return null;
+
+        Node node = this.root;
+        int index = rank - 1;
+
+        while (node != null) {
+            int leftSize = RankTree.size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.playerUuid;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Used to loop though the players from a rank in order.
+     * Only the nodes on the way to the first rank and the
+     * nodes that are looped though are visited.
+     *
+     * @param rank     The first rank, where 1 is first place.
+     * @param amount   The maximum amount of players.
+     * @param consumer Called with each player's uuid and score.
+     */
+    public void forEach(int rank, int amount, @NotNull ObjIntConsumer<UUID> consumer) {
+        if (amount <= 0) return;
+        RankTree.forEach(this.root, Math.max(rank, 1) - 1, new int[]{amount}, consumer);
+    }
+
+    /**
+     * Used to get the rank of a player.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The rank, where 1 is first place.
+     * 0 if the player is not ranked.
+     */
+    public int getRank(@NotNull UUID playerUuid) {
+        Integer score = this.scoreMap.get(playerUuid);
+        if (score == null) return 0;
+
+        Node node = this.root;
+        int rank = 1;
+
+        while (node != null) {
+            int compare = RankTree.compare(playerUuid, score, node);
+            if (compare < 0) {
+                node = node.left;
+            } else if (compare == 0) {
+                return rank + RankTree.size(node.left);
+            } else {
+                rank += RankTree.size(node.left) + 1;
+                node = node.right;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Used to remove every player.
+     */
+    public void clear() {
+        this.scoreMap.clear();
+        this.root = null;
+    }
+
+    /**
+     * Used to compare a player to a node.
+     *
+     * @param playerUuid The player's uuid.
+     * @param score      The player's score.
+     * @param node       The node.
+     * @return Less than zero if the player is ranked before the node.
+     */
+    private static int compare(@NotNull UUID playerUuid, int score, @NotNull Node node) {
+        if (score != node.score) return Integer.compare(node.score, score);
+        return playerUuid.compareTo(node.playerUuid);
+    }
+
+    /**
+     * Used to loop though the nodes of a tree in order.
+     *
+     * @param node      The root of the tree.
+     * @param skip      The amount of nodes to skip.
+     * @param remaining The amount of nodes left to loop though.
+     * @param consumer  Called with each node's uuid and score.
+     */
+    private static void forEach(@Nullable Node node, int skip, @NotNull int[] remaining, @NotNull ObjIntConsumer<UUID> consumer) {
+        if (node == null || remaining[0] <= 0) return;
+
+        int leftSize = RankTree.size(node.left);
+        if (skip < leftSize) RankTree.forEach(node.left, skip, remaining, consumer);
+        if (remaining[0] <= 0) return;
+
+        if (skip <= leftSize) {
+            consumer.accept(node.playerUuid, node.score);
+            remaining[0]--;
+        }
+
+        RankTree.forEach(node.right, Math.max(skip - leftSize - 1, 0), remaining, consumer);
+    }
+
+    private static int size(@Nullable Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static @NotNull Node update(@NotNull Node node) {
+        node.size = 1 + RankTree.size(node.left) + RankTree.size(node.right);
+        return node;
+    }
+
+    /**
+     * Used to split a tree into the nodes ranked before
+     * a player and the nodes ranked after the player.
+     *
+     * @return The two trees.
+     */
+    private static @NotNull Node[] split(@Nullable Node node, @NotNull UUID playerUuid, int score) {
+        if (node == null) return new Node[2];
+
+        if (RankTree.compare(playerUuid, score, node) > 0) {
+            Node[] parts = RankTree.split(node.right, playerUuid, score);
+            node.right = parts[0];
+            parts[0] = RankTree.update(node);
+            return parts;
+        }
+
+        Node[] parts = RankTree.split(node.left, playerUuid, score);
+        node.left = parts[1];
+        parts[1] = RankTree.update(node);
+        return parts;
+    }
+
+    /**
+     * Used to join two trees where every node in
+     * the first tree is ranked before the second tree.
+     *
+     * @return The joined tree.
+     */
+    private static @Nullable Node merge(@Nullable Node first, @Nullable Node second) {
+        if (first == null) return second;
+        if (second == null) return first;
+
+        if (first.priority > second.priority) {
+            first.right = RankTree.merge(first.right, second);
+            return RankTree.update(first);
+        }
+
+        second.left = RankTree.merge(first, second.left);
+        return RankTree.update(second);
+    }
+
+    /**
+     * Used to remove a player from a tree.
+     *
+     * @return The tree without the player.
+     */
+    private static @Nullable Node remove(@Nullable Node node, @NotNull UUID playerUuid, int score) {
+        if (node == null) return null;
+
+        int compare = RankTree.compare(playerUuid, score, node);
+        if (compare == 0) return RankTree.merge(node.left, node.right);
+
+        if (compare < 0) node.left = RankTree.remove(node.left, playerUuid, score);
+        else node.right = RankTree.remove(node.right, playerUuid, score);
+        return RankTree.update(node);
+    }
+}
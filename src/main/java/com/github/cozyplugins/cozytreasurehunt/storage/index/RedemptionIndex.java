@@ -0,0 +1,123 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.index;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Represents the players that have redeemed each treasure location.
+ * <p>
+ * The index is updated as players redeem locations, so
+ * the amount of players that redeemed a location can be
+ * read without loading every player's data.
+ * </p>
+ * <li>
+ * The methods can be called from any thread.
+ * </li>
+ */
+public class RedemptionIndex {
+
+    private final @NotNull Map<Integer, Set<UUID>> locationMap;
+    private final @NotNull Map<UUID, OrdinalSet> playerMap;
+
+    /**
+     * Used to create an empty redemption index.
+     */
+    public RedemptionIndex() {
+        this.locationMap = new HashMap<>();
+        this.playerMap = new HashMap<>();
+    }
+
+    /**
+     * Used to add that a player has redeemed a location.
+     *
+     * @param ordinal    The location's ordinal.
+     * @param playerUuid The player's uuid.
+     */
+    public synchronized void add(int ordinal, @NotNull UUID playerUuid) {
+        if (ordinal < 0) return;
+
+        this.locationMap.computeIfAbsent(ordinal, key -> new HashSet<>()).add(playerUuid);
+        this.playerMap.computeIfAbsent(playerUuid, key -> new OrdinalSet()).add(ordinal);
+    }
+
+    /**
+     * Used to remove that a player has redeemed a location.
+     *
+     * @param ordinal    The location's ordinal.
+     * @param playerUuid The player's uuid.
+     */
+    public synchronized void remove(int ordinal, @NotNull UUID playerUuid) {
+        Set<UUID> playerSet = this.locationMap.get(ordinal);
+        if (playerSet != null && playerSet.remove(playerUuid) && playerSet.isEmpty()) {
+            this.locationMap.remove(ordinal);
+        }
+
+        OrdinalSet ordinalSet = this.playerMap.get(playerUuid);
+        if (ordinalSet != null && ordinalSet.remove(ordinal) && ordinalSet.isEmpty()) {
+            this.playerMap.remove(playerUuid);
+        }
+    }
+
+    /**
+     * Used to replace the locations a player has redeemed.
+     * This is called when the player's data was changed
+     * outside the plugin.
+     *
+     * @param playerUuid The player's uuid.
+     * @param ordinalSet The ordinals of the locations they have redeemed.
+     */
+    public synchronized void set(@NotNull UUID playerUuid, @NotNull OrdinalSet ordinalSet) {
+        OrdinalSet previous = this.playerMap.get(playerUuid);
+        if (previous != null) previous.copy().forEach(ordinal -> this.remove(ordinal, playerUuid));
+
+        ordinalSet.forEach(ordinal -> this.add(ordinal, playerUuid));
+    }
+
+    /**
+     * Used to get the amount of players that have redeemed a location.
+     *
+     * @param ordinal The location's ordinal.
+     * @return The amount of players.
+     */
+    public synchronized int getAmount(int ordinal) {
+        Set<UUID> playerSet = this.locationMap.get(ordinal);
+        return playerSet == null ? 0 : playerSet.size();
+    }
+
+    /**
+     * Used to get the players that have redeemed a location.
+     *
+     * @param ordinal The location's ordinal.
+     * @return A copy of the set of player uuids.
+     */
+    public synchronized @NotNull Set<UUID> getPlayers(int ordinal) {
+        return new HashSet<>(this.locationMap.getOrDefault(ordinal, Set.of()));
+    }
+
+    /**
+     * Used to remove every player from the index.
+     */
+    public synchronized void clear() {
+        this.locationMap.clear();
+        this.playerMap.clear();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.index;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents the amount of locations of a single treasure type.
+ * <p>
+ * The counts are updated as locations are added, removed,
+ * spawned and un-spawned, so they can be read without
+ * looping though every treasure location.
+ * </p>
+ * <li>
+ * The ordinals of the locations that are not spawned are kept
+ * in a pool, so a random empty location can be picked.
+ * </li>
+ */
+public class TreasureCounter {
+
+    private @NotNull String treasureName;
+    private int total;
+    private int spawned;
+    private final @NotNull OrdinalPool unspawnedPool;
+
+    /**
+     * Used to create an empty treasure counter.
+     *
+     * @param treasureName The name of the treasure type.
+     */
+    public TreasureCounter(@NotNull String treasureName) {
+        this.treasureName = treasureName;
+        this.total = 0;
+        this.spawned = 0;
+        this.unspawnedPool = new OrdinalPool();
+    }
+
+    /**
+     * Used to get the name of the treasure type.
+     *
+     * @return The treasure's name.
+     */
+    public @NotNull String getTreasureName() {
+        return this.treasureName;
+    }
+
+    /**
+     * Used to set the name of the treasure type
+     * when the treasure is changed.
+     *
+     * @param treasureName The treasure's name.
+     */
+    public void setTreasureName(@NotNull String treasureName) {
+        this.treasureName = treasureName;
+    }
+
+    /**
+     * Used to get the amount of locations.
+     *
+     * @return The amount of locations.
+     */
+    public int getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Used to get the amount of spawned locations.
+     *
+     * @return The amount of spawned locations.
+     */
+    public int getSpawned() {
+        return this.spawned;
+    }
+
+    /**
+     * Used to check if there are no locations left.
+     *
+     * @return True if there are no locations.
+     */
+    public boolean isEmpty() {
+        return this.total <= 0;
+    }
+
+    /**
+     * Used to pick a random location that is not spawned.
+     *
+     * @return The location's ordinal.
+     * -1 if every location is spawned.
+     */
+    public int getRandomUnspawned() {
+        return this.unspawnedPool.getRandom();
+    }
+
+    /**
+     * Used to count a location that was added.
+     *
+     * @param ordinal   The location's ordinal.
+     * @param isSpawned True if the location is spawned.
+     */
+    public void add(int ordinal, boolean isSpawned) {
+        this.total++;
+        if (isSpawned) this.spawned++;
+        else this.unspawnedPool.add(ordinal);
+    }
+
+    /**
+     * Used to count a location that was removed.
+     *
+     * @param ordinal   The location's ordinal.
+     * @param isSpawned True if the location was spawned.
+     */
+    public void remove(int ordinal, boolean isSpawned) {
+        this.total--;
+        if (isSpawned) this.spawned--;
+        else this.unspawnedPool.remove(ordinal);
+    }
+
+    /**
+     * Used to count a location that was spawned or un-spawned.
+     *
+     * @param ordinal   The location's ordinal.
+     * @param isSpawned True if the location is now spawned.
+     */
+    public void setSpawned(int ordinal, boolean isSpawned) {
+        if (isSpawned) {
+            this.spawned++;
+            this.unspawnedPool.remove(ordinal);
+            return;
+        }
+
+        this.spawned--;
+        this.unspawnedPool.add(ordinal);
+    }
+}
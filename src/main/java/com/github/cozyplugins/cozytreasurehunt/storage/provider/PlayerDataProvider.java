@@ -0,0 +1,126 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.provider;
+
+import com.github.cozyplugins.cozytreasurehunt.storage.PlayerRecord;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.OrdinalSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Represents where player data is saved.
+ * <p>
+ * Player data is passed as the map from
+ * {@link com.github.cozyplugins.cozytreasurehunt.storage.PlayerData#convert()}.
+ * Providers can save the map in any layout, as long as
+ * {@link PlayerDataProvider#read(UUID)} returns an equal map.
+ * </p>
+ * <li>
+ * Methods are called from the storage executor and
+ * from the main thread, so they should be thread safe.
+ * </li>
+ */
+public interface PlayerDataProvider {
+
+    /**
+     * Used to get the name of the provider,
+     * as it is written in the config file.
+     *
+     * @return The name of the provider.
+     */
+    @NotNull String getName();
+
+    /**
+     * Used to prepare the provider before it is used.
+     */
+    void load();
+
+    /**
+     * Used to read a player's data.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The player's data.
+     * Null if the player has no data.
+     */
+    @Nullable Map<String, Object> read(@NotNull UUID playerUuid);
+
+    /**
+     * Used to write the data of players.
+     *
+     * @param dataMap The map of player uuids to their data.
+     * @return The uuids of the players whose data could not be written.
+     * Empty if every player was written.
+     */
+    @NotNull Set<UUID> write(@NotNull Map<UUID, Map<String, Object>> dataMap);
+
+    /**
+     * Used to get the uuids of every player with data.
+     *
+     * @return The list of player uuids.
+     */
+    @NotNull List<UUID> getPlayerUuids();
+
+    /**
+     * Used to loop though the record of every player with data.
+     * Each player is read once, and only the record is kept,
+     * so the data of every player is never in memory at once.
+     * By default, each player is read with {@link PlayerDataProvider#read(UUID)}.
+     *
+     * @param consumer Called with each player's record.
+     */
+    default void forEach(@NotNull Consumer<PlayerRecord> consumer) {
+        for (UUID playerUuid : this.getPlayerUuids()) {
+            Map<String, Object> data = this.read(playerUuid);
+            if (data != null) consumer.accept(PlayerRecord.of(playerUuid, data));
+        }
+    }
+
+    /**
+     * Used to get the locations each player has redeemed.
+     * By default, every player's record is read.
+     *
+     * @return The map of player uuids to the ordinals
+     * of the locations they have redeemed.
+     */
+    default @NotNull Map<UUID, OrdinalSet> getRedeemedLocations() {
+        Map<UUID, OrdinalSet> redeemedMap = new HashMap<>();
+
+        this.forEach(record -> {
+            if (!record.getRedeemedLocations().isEmpty()) {
+                redeemedMap.put(record.getIdentifier(), record.getRedeemedLocations());
+            }
+        });
+
+        return redeemedMap;
+    }
+
+    /**
+     * Used to remove the data of every player.
+     */
+    void removeAll();
+
+    /**
+     * Used to release the resources used by the provider.
+     * The provider should not be used after it is closed.
+     */
+    void close();
+}
@@ -0,0 +1,529 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.provider;
+
+import com.github.cozyplugins.cozylibrary.ConsoleManager;
+import com.github.cozyplugins.cozytreasurehunt.storage.LocationStorage;
+import com.github.cozyplugins.cozytreasurehunt.storage.PlayerRecord;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.FoundRing;
+import com.github.cozyplugins.cozytreasurehunt.storage.index.OrdinalSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.sql.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Represents the sqlite player data provider.
+ * <p>
+ * Player data is saved to an embedded database in the data
+ * directory with the name of the save location. The treasure
+ * found and the ordinals of the redeemed locations are saved
+ * in their own indexed tables, so a single player can be read
+ * and written without reading any other player.
+ * </p>
+ * <li>
+ * Redeemed location identifiers saved by older versions
+ * are read from the redemption table.
+ * </li>
+ * <li>
+ * The sqlite driver is provided by the server.
+ * </li>
+ */
+public class SqlitePlayerDataProvider implements PlayerDataProvider {
+
+    private static final @NotNull String REDEEMED_KEY = "no_longer_redeemable";
+
+    private final @NotNull File file;
+    private @Nullable Connection connection;
+
+    /**
+     * Used to create a sqlite player data provider.
+     *
+     * @param dataDirectory The plugin's data directory.
+     * @param saveLocation  The save location.
+     */
+    public SqlitePlayerDataProvider(@NotNull File dataDirectory, @NotNull String saveLocation) {
+        this.file = new File(dataDirectory, saveLocation + ".db");
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "sqlite";
+    }
+
+    @Override
+    public synchronized void load() {
+        if (this.connection != null) return;
+
+        try {
+            Class.forName("org.sqlite.JDBC");
+            this.connection = DriverManager.getConnection("jdbc:sqlite:" + this.file.getAbsolutePath());
+
+            try (Statement statement = this.connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+
+                statement.execute("CREATE TABLE IF NOT EXISTS player ("
+                        + "uuid TEXT PRIMARY KEY, "
+                        + "info TEXT NOT NULL)");
+
+                statement.execute("CREATE TABLE IF NOT EXISTS treasure_found ("
+                        + "uuid TEXT NOT NULL, "
+                        + "treasure TEXT NOT NULL, "
+                        + "amount INTEGER NOT NULL, "
+                        + "PRIMARY KEY (uuid, treasure))");
+                statement.execute("CREATE INDEX IF NOT EXISTS treasure_found_treasure "
+                        + "ON treasure_found (treasure, amount)");
+
+                statement.execute("CREATE TABLE IF NOT EXISTS redemption ("
+                        + "uuid TEXT NOT NULL, "
+                        + "treasure TEXT NOT NULL, "
+                        + "location TEXT NOT NULL, "
+                        + "PRIMARY KEY (uuid, treasure, location))");
+                statement.execute("CREATE INDEX IF NOT EXISTS redemption_location "
+                        + "ON redemption (location)");
+
+                statement.execute("CREATE TABLE IF NOT EXISTS redeemed ("
+                        + "uuid TEXT NOT NULL, "
+                        + "ordinal INTEGER NOT NULL, "
+                        + "PRIMARY KEY (uuid, ordinal))");
+                statement.execute("CREATE INDEX IF NOT EXISTS redeemed_ordinal "
+                        + "ON redeemed (ordinal)");
+
+                statement.execute("CREATE TABLE IF NOT EXISTS found_per_day ("
+                        + "uuid TEXT NOT NULL, "
+                        + "day INTEGER NOT NULL, "
+                        + "amount INTEGER NOT NULL, "
+                        + "PRIMARY KEY (uuid, day))");
+            }
+
+        } catch (ClassNotFoundException | SQLException exception) {
+            ConsoleManager.error("Unable to open the player database " + this.file.getAbsolutePath());
+            exception.printStackTrace();
+            this.close();
+        }
+    }
+
+    @Override
+    public synchronized @Nullable Map<String, Object> read(@NotNull UUID playerUuid) {
+        if (this.connection == null) return null;
+
+        try {
+            Map<String, Object> info;
+            try (PreparedStatement statement = this.connection.prepareStatement(
+                    "SELECT info FROM player WHERE uuid = ?")) {
+
+                statement.setString(1, playerUuid.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    if (!result.next()) return null;
+                    info = SqlitePlayerDataProvider.parseInfo(result.getString(1));
+                }
+            }
+
+            Map<String, Object> treasureFound = new LinkedHashMap<>();
+            try (PreparedStatement statement = this.connection.prepareStatement(
+                    "SELECT treasure, amount FROM treasure_found WHERE uuid = ?")) {
+
+                statement.setString(1, playerUuid.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) treasureFound.put(result.getString(1), result.getInt(2));
+                }
+            }
+
+            Map<String, Object> redeemed = new LinkedHashMap<>();
+            try (PreparedStatement statement = this.connection.prepareStatement(
+                    "SELECT treasure, location FROM redemption WHERE uuid = ?")) {
+
+                statement.setString(1, playerUuid.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        SqlitePlayerDataProvider.getList(redeemed, result.getString(1)).add(result.getString(2));
+                    }
+                }
+            }
+
+            if (!redeemed.isEmpty()) info.put(SqlitePlayerDataProvider.REDEEMED_KEY, redeemed);
+
+            OrdinalSet ordinalSet = new OrdinalSet();
+            try (PreparedStatement statement = this.connection.prepareStatement(
+                    "SELECT ordinal FROM redeemed WHERE uuid = ?")) {
+
+                statement.setString(1, playerUuid.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) ordinalSet.add(result.getInt(1));
+                }
+            }
+
+            Map<String, Object> foundPerDay = new LinkedHashMap<>();
+            try (PreparedStatement statement = this.connection.prepareStatement(
+                    "SELECT day, amount FROM found_per_day WHERE uuid = ?")) {
+
+                statement.setString(1, playerUuid.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) foundPerDay.put(Long.toString(result.getLong(1)), result.getInt(2));
+                }
+            }
+
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("treasure_found", treasureFound);
+            data.put("info", info);
+            if (!ordinalSet.isEmpty()) data.put("redeemed", ordinalSet.encode());
+            if (!foundPerDay.isEmpty()) data.put("found_per_day", foundPerDay);
+            return data;
+
+        } catch (SQLException exception) {
+            ConsoleManager.error("Unable to read the player data of " + playerUuid + " from the database.");
+            exception.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized @NotNull Set<UUID> write(@NotNull Map<UUID, Map<String, Object>> dataMap) {
+        if (dataMap.isEmpty()) return new HashSet<>();
+        if (this.connection == null) return new HashSet<>(dataMap.keySet());
+
+        try {
+            this.connection.setAutoCommit(false);
+
+            try (PreparedStatement playerStatement = this.connection.prepareStatement(
+                    "INSERT OR REPLACE INTO player (uuid, info) VALUES (?, ?)");
+                 PreparedStatement deleteFoundStatement = this.connection.prepareStatement(
+                         "DELETE FROM treasure_found WHERE uuid = ?");
+                 PreparedStatement foundStatement = this.connection.prepareStatement(
+                         "INSERT INTO treasure_found (uuid, treasure, amount) VALUES (?, ?, ?)");
+                 PreparedStatement deleteRedemptionStatement = this.connection.prepareStatement(
+                         "DELETE FROM redemption WHERE uuid = ?");
+                 PreparedStatement redemptionStatement = this.connection.prepareStatement(
+                         "INSERT OR IGNORE INTO redemption (uuid, treasure, location) VALUES (?, ?, ?)");
+                 PreparedStatement deleteRedeemedStatement = this.connection.prepareStatement(
+                         "DELETE FROM redeemed WHERE uuid = ?");
+                 PreparedStatement redeemedStatement = this.connection.prepareStatement(
+                         "INSERT OR IGNORE INTO redeemed (uuid, ordinal) VALUES (?, ?)");
+                 PreparedStatement deleteDayStatement = this.connection.prepareStatement(
+                         "DELETE FROM found_per_day WHERE uuid = ?");
+                 PreparedStatement dayStatement = this.connection.prepareStatement(
+                         "INSERT OR REPLACE INTO found_per_day (uuid, day, amount) VALUES (?, ?, ?)")) {
+
+                for (Map.Entry<UUID, Map<String, Object>> entry : dataMap.entrySet()) {
+                    String uuid = entry.getKey().toString();
+                    Map<String, Object> info = new LinkedHashMap<>(SqlitePlayerDataProvider.getMap(entry.getValue(), "info"));
+                    Map<String, Object> redeemed = SqlitePlayerDataProvider.getMap(info, SqlitePlayerDataProvider.REDEEMED_KEY);
+                    info.remove(SqlitePlayerDataProvider.REDEEMED_KEY);
+
+                    playerStatement.setString(1, uuid);
+                    playerStatement.setString(2, new Yaml().dump(info));
+                    playerStatement.addBatch();
+
+                    deleteFoundStatement.setString(1, uuid);
+                    deleteFoundStatement.addBatch();
+                    for (Map.Entry<String, Object> found : SqlitePlayerDataProvider.getMap(entry.getValue(), "treasure_found").entrySet()) {
+                        if (!(found.getValue() instanceof Number amount)) continue;
+
+                        foundStatement.setString(1, uuid);
+                        foundStatement.setString(2, found.getKey());
+                        foundStatement.setInt(3, amount.intValue());
+                        foundStatement.addBatch();
+                    }
+
+                    deleteRedemptionStatement.setString(1, uuid);
+                    deleteRedemptionStatement.addBatch();
+                    for (Map.Entry<String, Object> treasure : redeemed.entrySet()) {
+                        if (!(treasure.getValue() instanceof List<?> locationList)) continue;
+
+                        for (Object location : locationList) {
+                            redemptionStatement.setString(1, uuid);
+                            redemptionStatement.setString(2, treasure.getKey());
+                            redemptionStatement.setString(3, String.valueOf(location));
+                            redemptionStatement.addBatch();
+                        }
+                    }
+
+                    deleteRedeemedStatement.setString(1, uuid);
+                    deleteRedeemedStatement.addBatch();
+                    Object encoded = entry.getValue().get("redeemed");
+                    for (int ordinal : OrdinalSet.decode(encoded == null ? null : encoded.toString()).toArray()) {
+                        redeemedStatement.setString(1, uuid);
+                        redeemedStatement.setInt(2, ordinal);
+                        redeemedStatement.addBatch();
+                    }
+
+                    deleteDayStatement.setString(1, uuid);
+                    deleteDayStatement.addBatch();
+                    for (Map.Entry<String, Object> day : SqlitePlayerDataProvider.getMap(entry.getValue(), "found_per_day").entrySet()) {
+                        if (!(day.getValue() instanceof Number amount)) continue;
+
+                        try {
+                            dayStatement.setString(1, uuid);
+                            dayStatement.setLong(2, Long.parseLong(day.getKey()));
+                            dayStatement.setInt(3, amount.intValue());
+                            dayStatement.addBatch();
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                }
+
+                // The old rows are deleted before the new rows are inserted.
+                playerStatement.executeBatch();
+                deleteFoundStatement.executeBatch();
+                deleteRedemptionStatement.executeBatch();
+                deleteRedeemedStatement.executeBatch();
+                deleteDayStatement.executeBatch();
+                foundStatement.executeBatch();
+                redemptionStatement.executeBatch();
+                redeemedStatement.executeBatch();
+                dayStatement.executeBatch();
+            }
+
+            this.connection.commit();
+            return new HashSet<>();
+
+        } catch (SQLException exception) {
+            ConsoleManager.error("Unable to write the player data of " + dataMap.size() + " players to the database.");
+            exception.printStackTrace();
+            this.rollback();
+
+            // The players are written in one transaction, so none of them were written.
+            return new HashSet<>(dataMap.keySet());
+
+        } finally {
+            this.setAutoCommit();
+        }
+    }
+
+    @Override
+    public synchronized void forEach(@NotNull Consumer<PlayerRecord> consumer) {
+        if (this.connection == null) return;
+
+        // The tables are read together in the order of the uuids,
+        // so each player's rows are next to each other.
+        try (Statement playerStatement = this.connection.createStatement();
+             Statement foundStatement = this.connection.createStatement();
+             Statement redeemedStatement = this.connection.createStatement();
+             Statement dayStatement = this.connection.createStatement();
+             ResultSet players = playerStatement.executeQuery("SELECT uuid, info FROM player ORDER BY uuid");
+             ResultSet found = foundStatement.executeQuery("SELECT uuid, treasure, amount FROM treasure_found ORDER BY uuid");
+             ResultSet redeemed = redeemedStatement.executeQuery("SELECT uuid, ordinal FROM redeemed ORDER BY uuid");
+             ResultSet days = dayStatement.executeQuery("SELECT uuid, day, amount FROM found_per_day ORDER BY uuid")) {
+
+            boolean hasFound = found.next();
+            boolean hasRedeemed = redeemed.next();
+            boolean hasDay = days.next();
+
+            while (players.next()) {
+                String uuid = players.getString(1);
+
+                Map<String, Integer> treasureFound = new HashMap<>();
+                while (hasFound) {
+                    int compare = found.getString(1).compareTo(uuid);
+                    if (compare > 0) break;
+                    if (compare == 0) treasureFound.put(found.getString(2), found.getInt(3));
+                    hasFound = found.next();
+                }
+
+                OrdinalSet ordinalSet = new OrdinalSet();
+                while (hasRedeemed) {
+                    int compare = redeemed.getString(1).compareTo(uuid);
+                    if (compare > 0) break;
+                    if (compare == 0) ordinalSet.add(redeemed.getInt(2));
+                    hasRedeemed = redeemed.next();
+                }
+
+                FoundRing recentFound = new FoundRing();
+                while (hasDay) {
+                    int compare = days.getString(1).compareTo(uuid);
+                    if (compare > 0) break;
+                    if (compare == 0) recentFound.add(days.getLong(2), days.getInt(3));
+                    hasDay = days.next();
+                }
+
+                Object name = SqlitePlayerDataProvider.parseInfo(players.getString(2)).get("name");
+                consumer.accept(new PlayerRecord(UUID.fromString(uuid),
+                        name == null ? null : name.toString(),
+                        treasureFound,
+                        ordinalSet,
+                        recentFound
+                ));
+            }
+
+        } catch (SQLException | IllegalArgumentException exception) {
+            ConsoleManager.error("Unable to read the players from the database.");
+            exception.printStackTrace();
+        }
+    }
+
+    @Override
+    public synchronized @NotNull List<UUID> getPlayerUuids() {
+        List<UUID> playerUuidList = new ArrayList<>();
+        if (this.connection == null) return playerUuidList;
+
+        try (Statement statement = this.connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT uuid FROM player")) {
+
+            while (result.next()) playerUuidList.add(UUID.fromString(result.getString(1)));
+
+        } catch (SQLException | IllegalArgumentException exception) {
+            ConsoleManager.error("Unable to read the players from the database.");
+            exception.printStackTrace();
+        }
+
+        return playerUuidList;
+    }
+
+    @Override
+    public synchronized @NotNull Map<UUID, OrdinalSet> getRedeemedLocations() {
+        Map<UUID, OrdinalSet> redeemedMap = new HashMap<>();
+        if (this.connection == null) return redeemedMap;
+
+        try (Statement statement = this.connection.createStatement()) {
+
+            try (ResultSet result = statement.executeQuery("SELECT uuid, ordinal FROM redeemed")) {
+                while (result.next()) {
+                    redeemedMap.computeIfAbsent(UUID.fromString(result.getString(1)), key -> new OrdinalSet())
+                            .add(result.getInt(2));
+                }
+            }
+
+            // Convert the redeemed locations from older versions.
+            try (ResultSet result = statement.executeQuery("SELECT uuid, location FROM redemption")) {
+                while (result.next()) {
+                    int ordinal = LocationStorage.getOrdinal(result.getString(2));
+                    if (ordinal < 0) continue;
+
+                    redeemedMap.computeIfAbsent(UUID.fromString(result.getString(1)), key -> new OrdinalSet())
+                            .add(ordinal);
+                }
+            }
+
+        } catch (SQLException | IllegalArgumentException exception) {
+            ConsoleManager.error("Unable to read the redeemed locations from the database.");
+            exception.printStackTrace();
+        }
+
+        return redeemedMap;
+    }
+
+    @Override
+    public synchronized void removeAll() {
+        if (this.connection == null) return;
+
+        try (Statement statement = this.connection.createStatement()) {
+            this.connection.setAutoCommit(false);
+            statement.execute("DELETE FROM player");
+            statement.execute("DELETE FROM treasure_found");
+            statement.execute("DELETE FROM redemption");
+            statement.execute("DELETE FROM redeemed");
+            statement.execute("DELETE FROM found_per_day");
+            this.connection.commit();
+
+        } catch (SQLException exception) {
+            ConsoleManager.error("Unable to remove the player data from the database.");
+            exception.printStackTrace();
+            this.rollback();
+
+        } finally {
+            this.setAutoCommit();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.connection == null) return;
+
+        try {
+            this.connection.close();
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+
+        this.connection = null;
+    }
+
+    /**
+     * Used to undo the current transaction after it failed.
+     */
+    private void rollback() {
+        if (this.connection == null) return;
+
+        try {
+            this.connection.rollback();
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Used to return the connection to auto commit after a transaction.
+     */
+    private void setAutoCommit() {
+        if (this.connection == null) return;
+
+        try {
+            this.connection.setAutoCommit(true);
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Used to parse the saved information of a player.
+     *
+     * @param info The information as yaml.
+     * @return The information map.
+     */
+    @SuppressWarnings("unchecked")
+    private static @NotNull Map<String, Object> parseInfo(@Nullable String info) {
+        if (info == null) return new LinkedHashMap<>();
+
+        Object object = new Yaml().load(info);
+        if (object instanceof Map<?, ?> map) return new LinkedHashMap<>((Map<String, Object>) map);
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * Used to get a map inside a map.
+     *
+     * @param map The map.
+     * @param key The key of the inner map.
+     * @return The inner map.
+     * An empty map if it is not a map.
+     */
+    @SuppressWarnings("unchecked")
+    private static @NotNull Map<String, Object> getMap(@NotNull Map<String, Object> map, @NotNull String key) {
+        Object value = map.get(key);
+        if (value instanceof Map<?, ?> inner) return (Map<String, Object>) inner;
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * Used to get a list inside a map, creating it if it does not exist.
+     *
+     * @param map The map.
+     * @param key The key of the list.
+     * @return The list.
+     */
+    @SuppressWarnings("unchecked")
+    private static @NotNull List<Object> getList(@NotNull Map<String, Object> map, @NotNull String key) {
+        return (List<Object>) map.computeIfAbsent(key, ignored -> new ArrayList<>());
+    }
+}
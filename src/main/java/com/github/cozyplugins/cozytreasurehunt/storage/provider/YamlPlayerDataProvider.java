@@ -0,0 +1,216 @@
+/*
+    This file is part of the project CozyTreasureHunt.
+    Copyright (C) 2023  Smudge (Smuddgge), Cozy Plugins and contributors.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozytreasurehunt.storage.provider;
+
+import com.github.cozyplugins.cozylibrary.ConsoleManager;
+import com.github.cozyplugins.cozytreasurehunt.storage.DataMigration;
+import com.github.cozyplugins.cozytreasurehunt.storage.GroupCommit;
+import com.github.cozyplugins.cozytreasurehunt.storage.PlayerRecord;
+import com.github.smuddgge.squishyconfiguration.implementation.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Represents the yaml player data provider.
+ * <p>
+ * Each player's data is saved to its own file in the directory
+ * with the name of the save location. Players are split into sub
+ * directories by the first two characters of their uuid.
+ * </p>
+ * <li>data/[save location]/[first two characters]/[uuid].yml</li>
+ */
+public class YamlPlayerDataProvider implements PlayerDataProvider {
+
+    private final @NotNull File dataDirectory;
+    private final @NotNull String saveLocation;
+    private final @NotNull File directory;
+
+    /**
+     * Used to create a yaml player data provider.
+     *
+     * @param dataDirectory The plugin's data directory.
+     * @param saveLocation  The save location.
+     */
+    public YamlPlayerDataProvider(@NotNull File dataDirectory, @NotNull String saveLocation) {
+        this.dataDirectory = dataDirectory;
+        this.saveLocation = saveLocation;
+        this.directory = new File(dataDirectory, saveLocation);
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "yaml";
+    }
+
+    /**
+     * Used to get the directory the player files are saved in.
+     *
+     * @return The save directory.
+     */
+    public @NotNull File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Used to get the file a player's data is saved to.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The player's file.
+     */
+    public @NotNull File getFile(@NotNull UUID playerUuid) {
+        String name = playerUuid.toString();
+        return new File(new File(this.directory, name.substring(0, 2)), name + ".yml");
+    }
+
+    /**
+     * If the save location is still a single file,
+     * it will be migrated to a file for each player.
+     */
+    @Override
+    public void load() {
+        File legacyFile = this.getLegacyFile();
+        if (legacyFile == null) return;
+
+        ConsoleManager.warn("Migrating player data from " + legacyFile.getName() + " to a file for each player.");
+        int amount = DataMigration.migrate(legacyFile, this::getFile);
+        if (amount >= 0) ConsoleManager.warn("Migrated the player data of " + amount + " players.");
+    }
+
+    /**
+     * Used to get the single file player data used to be saved to.
+     *
+     * @return The single player data file.
+     * Null if there is no file to migrate.
+     */
+    private @Nullable File getLegacyFile() {
+        File file = new File(this.dataDirectory, this.saveLocation + ".yml");
+        if (!file.isFile()) return null;
+        return file;
+    }
+
+    @Override
+    public @Nullable Map<String, Object> read(@NotNull UUID playerUuid) {
+        File file = this.getFile(playerUuid);
+        if (!file.exists()) return null;
+
+        YamlConfiguration configuration = new YamlConfiguration(file);
+        configuration.load();
+        return configuration.getSection(playerUuid.toString()).getMap();
+    }
+
+    @Override
+    public @NotNull Set<UUID> write(@NotNull Map<UUID, Map<String, Object>> dataMap) {
+        Map<UUID, CompletableFuture<Void>> futureMap = new LinkedHashMap<>();
+
+        for (Map.Entry<UUID, Map<String, Object>> entry : dataMap.entrySet()) {
+            File file = this.getFile(entry.getKey());
+
+            YamlConfiguration configuration = new YamlConfiguration(file);
+            configuration.set(entry.getKey().toString(), entry.getValue());
+            futureMap.put(entry.getKey(), GroupCommit.write(file, GroupCommit.toBytes(configuration)));
+        }
+
+        // Wait for the files to be written, so reads do not return older data.
+        // Files that could not be written have already been logged.
+        Set<UUID> failedSet = new HashSet<>();
+        for (Map.Entry<UUID, CompletableFuture<Void>> entry : futureMap.entrySet()) {
+            try {
+                entry.getValue().join();
+            } catch (CompletionException | CancellationException exception) {
+                failedSet.add(entry.getKey());
+            }
+        }
+
+        return failedSet;
+    }
+
+    @Override
+    public void forEach(@NotNull Consumer<PlayerRecord> consumer) {
+        Yaml yaml = new Yaml();
+
+        for (UUID playerUuid : this.getPlayerUuids()) {
+            File file = this.getFile(playerUuid);
+
+            // Parse the file directly, as only the record is needed.
+            try (InputStream stream = new FileInputStream(file)) {
+                if (yaml.load(stream) instanceof Map<?, ?> map
+                        && map.get(playerUuid.toString()) instanceof Map<?, ?> data) {
+
+                    consumer.accept(PlayerRecord.of(playerUuid, data));
+                }
+
+            } catch (IOException | YAMLException exception) {
+                ConsoleManager.warn("Unable to read the player data file " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    @Override
+    public @NotNull List<UUID> getPlayerUuids() {
+        List<UUID> playerUuidList = new ArrayList<>();
+        File[] shards = this.directory.listFiles(File::isDirectory);
+        if (shards == null) return playerUuidList;
+
+        for (File shard : shards) {
+            File[] files = shard.listFiles((directory, name) -> name.endsWith(".yml"));
+            if (files == null) continue;
+
+            for (File file : files) {
+                String name = file.getName();
+                try {
+                    playerUuidList.add(UUID.fromString(name.substring(0, name.length() - 4)));
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+        }
+
+        return playerUuidList;
+    }
+
+    @Override
+    public void removeAll() {
+        for (UUID playerUuid : this.getPlayerUuids()) {
+            File file = this.getFile(playerUuid);
+            if (!file.delete()) ConsoleManager.warn("Unable to delete the player data file " + file.getAbsolutePath());
+        }
+    }
+
+    @Override
+    public void close() {
+
+    }
+}